@@ -32,6 +32,16 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // android.util.Log and friends return defaults in JVM unit tests
+        unitTests.isReturnDefaultValues = true
+        unitTests.all {
+            // ./gradlew testDebugUnitTest -Pbenchmarks also runs the *Benchmark classes
+            it.systemProperty("emotilog.benchmarks", project.hasProperty("benchmarks"))
+            it.testLogging.showStandardStreams = project.hasProperty("benchmarks")
+            it.maxHeapSize = "2g"
+        }
+    }
     buildFeatures {
         compose = true
     }
@@ -47,8 +57,11 @@ dependencies {
     implementation(libs.androidx.compose.ui.tooling.preview)
     implementation(libs.androidx.compose.material3)
     implementation(libs.androidx.appcompat)
+    implementation(libs.androidx.recyclerview)
     implementation(libs.firebase.crashlytics.buildtools)
     testImplementation(libs.junit)
+    testImplementation(libs.jol.core)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
     androidTestImplementation(platform(libs.androidx.compose.bom))
@@ -0,0 +1,388 @@
+package com.example.emotilog;
+
+import java.util.Arrays;
+
+/**
+ * DayIndex maps local day keys to the contiguous run of rows logged that day.
+ * Design Rationale:
+ * - EmotionLogStore keeps rows in time order, so every day occupies one
+ *   contiguous range and is fully described by (first row, row count)
+ * - Days are kept sorted in parallel primitive arrays, so a lookup is a
+ *   binary search over days (O(log d)) rather than a scan over all logs
+ * - Maintained incrementally by the store; appending to today touches a
+ *   single counter, back-dated rows shift the starts of later days only
+ * - Each day also carries a per-emotion counter row, so a day's summary is
+ *   read in O(emotions) no matter how many logs the day holds
+ * - Batch removals only adjust counters, then fix every start in a single
+ *   pass, so removing k rows costs O(k log d + d) instead of O(k * d)
+ * - Running totals (prefix sums) of the counters are kept alongside, so the
+ *   counts of any range of days are two lookups and a subtraction,
+ *   O(log d + emotions) however long the range; a log for today only
+ *   extends the last running total
+ * - Streaks (consecutive days on which an emotion was logged) are kept per
+ *   day and emotion in the same pass, so the current streak is one lookup
+ * - The sorted days double as the set of dates with logs; listing them, or
+ *   those within a range, costs O(log d + days returned)
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.3
+ */
+class DayIndex {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EMOTIONS = Emotion.values().length;
+
+    private int[] days;    // epoch-day keys, ascending
+    private int[] starts;  // first row of each day in the store
+    private int[] counts;  // rows in each day
+    private int[] emotionCounts; // EMOTIONS counters per day, by ordinal
+    // Sums over all slots before a slot: entry slot covers [0, slot), so
+    // both arrays hold one entry more than there are days
+    private int[] prefixTotals;
+    private int[] prefixEmotionCounts;
+    // Consecutive days up to and including each day with the emotion logged
+    private int[] streaks;
+    private int size;
+
+    DayIndex() {
+        days = new int[INITIAL_CAPACITY];
+        starts = new int[INITIAL_CAPACITY];
+        counts = new int[INITIAL_CAPACITY];
+        emotionCounts = new int[INITIAL_CAPACITY * EMOTIONS];
+        prefixTotals = new int[INITIAL_CAPACITY + 1];
+        prefixEmotionCounts = new int[(INITIAL_CAPACITY + 1) * EMOTIONS];
+        streaks = new int[INITIAL_CAPACITY * EMOTIONS];
+    }
+
+    /**
+     * Record a row inserted into the store
+     *
+     * @param epochDay Day key of the new row
+     * @param row Store index the row was inserted at
+     * @param ordinal Emotion ordinal of the new row
+     */
+    void onInsert(int epochDay, int row, int ordinal) {
+        int slot = find(epochDay);
+        if (slot < 0) {
+            slot = -slot - 1;
+            openSlot(slot);
+            days[slot] = epochDay;
+            starts[slot] = row;
+            counts[slot] = 0;
+            Arrays.fill(emotionCounts, slot * EMOTIONS, (slot + 1) * EMOTIONS, 0);
+        }
+        counts[slot]++;
+        emotionCounts[slot * EMOTIONS + ordinal]++;
+        shiftStarts(slot + 1, 1);
+        updateRunningTotals(slot);
+    }
+
+    /**
+     * Record a row removed from the store
+     *
+     * @param epochDay Day key of the removed row
+     * @param ordinal Emotion ordinal of the removed row
+     */
+    void onRemove(int epochDay, int ordinal) {
+        int slot = find(epochDay);
+        if (slot < 0) {
+            return;
+        }
+        shiftStarts(slot + 1, -1);
+        emotionCounts[slot * EMOTIONS + ordinal]--;
+        if (--counts[slot] == 0) {
+            closeSlot(slot);
+        }
+        updateRunningTotals(slot);
+    }
+
+    /**
+     * Record a row marked for removal as part of a batch
+     * Only the counters change; call {@link #compact()} once the store has
+     * compacted its rows
+     *
+     * @param epochDay Day key of the marked row
+     * @param ordinal Emotion ordinal of the marked row
+     */
+    void onMarkRemoved(int epochDay, int ordinal) {
+        int slot = find(epochDay);
+        if (slot < 0) {
+            return;
+        }
+        counts[slot]--;
+        emotionCounts[slot * EMOTIONS + ordinal]--;
+    }
+
+    /**
+     * Drop emptied days and recompute every first row in one pass
+     * Rows of consecutive days are adjacent, so each start is the sum of the
+     * counts before it
+     */
+    void compact() {
+        int kept = 0;
+        int start = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (counts[slot] == 0) {
+                continue;
+            }
+            if (kept != slot) {
+                days[kept] = days[slot];
+                counts[kept] = counts[slot];
+                System.arraycopy(emotionCounts, slot * EMOTIONS,
+                        emotionCounts, kept * EMOTIONS, EMOTIONS);
+            }
+            starts[kept] = start;
+            start += counts[kept];
+            kept++;
+        }
+        size = kept;
+        updateRunningTotals(0);
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Rebuild the index from a snapshot's day table
+     * Only valid when the store holds exactly the snapshot's rows
+     *
+     * @param snapshot Snapshot the store was loaded from
+     */
+    void load(EmotionLogSnapshot snapshot) {
+        int dayCount = snapshot.dayCount();
+        int capacity = Math.max(INITIAL_CAPACITY, dayCount);
+        days = new int[capacity];
+        starts = new int[capacity];
+        counts = new int[capacity];
+        emotionCounts = new int[capacity * EMOTIONS];
+        prefixTotals = new int[capacity + 1];
+        prefixEmotionCounts = new int[(capacity + 1) * EMOTIONS];
+        streaks = new int[capacity * EMOTIONS];
+        size = dayCount;
+
+        for (int slot = 0; slot < dayCount; slot++) {
+            int start = snapshot.dayStartAt(slot);
+            int end = slot + 1 < dayCount ? snapshot.dayStartAt(slot + 1) : snapshot.size();
+            days[slot] = snapshot.dayAt(slot);
+            starts[slot] = start;
+            counts[slot] = end - start;
+            for (int row = start; row < end; row++) {
+                emotionCounts[slot * EMOTIONS + snapshot.emotionAt(row)]++;
+            }
+        }
+        updateRunningTotals(0);
+    }
+
+    /**
+     * Rebuild the index from the store's columns in one pass
+     *
+     * @param timestamps Timestamp column, ascending
+     * @param emotions Emotion ordinal column
+     * @param rows Number of rows in use
+     */
+    void rebuild(long[] timestamps, byte[] emotions, int rows) {
+        size = 0;
+        for (int row = 0; row < rows; row++) {
+            int day = EpochDays.of(timestamps[row]);
+            if (size == 0 || days[size - 1] != day) {
+                openSlot(size);
+                days[size - 1] = day;
+                starts[size - 1] = row;
+                counts[size - 1] = 0;
+                Arrays.fill(emotionCounts, (size - 1) * EMOTIONS, size * EMOTIONS, 0);
+            }
+            counts[size - 1]++;
+            emotionCounts[(size - 1) * EMOTIONS + emotions[row]]++;
+        }
+        updateRunningTotals(0);
+    }
+
+    /**
+     * Find the slot of a day
+     *
+     * @param epochDay Day key to look up
+     * @return Slot of the day, or (-(insertion point) - 1) if it has no rows
+     */
+    int find(int epochDay) {
+        return Arrays.binarySearch(days, 0, size, epochDay);
+    }
+
+    /**
+     * @return Number of distinct days with rows
+     */
+    int dayCount() {
+        return size;
+    }
+
+    int dayAt(int slot) {
+        return days[slot];
+    }
+
+    /**
+     * Copy the days with rows within a range
+     *
+     * @param fromDay First day key of the range, inclusive
+     * @param toDay Last day key of the range, inclusive
+     * @return Ascending day keys in the range
+     */
+    int[] copyDays(int fromDay, int toDay) {
+        int from = firstSlotFrom(fromDay);
+        int to = firstSlotAfter(toDay);
+        return to <= from ? new int[0] : Arrays.copyOfRange(days, from, to);
+    }
+
+    /**
+     * @return First slot whose day is >= epochDay, or dayCount() if none
+     */
+    private int firstSlotFrom(int epochDay) {
+        int slot = find(epochDay);
+        return slot < 0 ? -slot - 1 : slot;
+    }
+
+    /**
+     * @return First slot whose day is > epochDay, or dayCount() if none
+     */
+    private int firstSlotAfter(int epochDay) {
+        int slot = find(epochDay);
+        return slot < 0 ? -slot - 1 : slot + 1;
+    }
+
+    int startOf(int slot) {
+        return starts[slot];
+    }
+
+    int countOf(int slot) {
+        return counts[slot];
+    }
+
+    /**
+     * Sum the counters of every day in a range
+     *
+     * @param fromDay First day key of the range, inclusive
+     * @param toDay Last day key of the range, inclusive
+     * @param out Array of at least Emotion.values().length, indexed by ordinal
+     * @return Total number of rows in the range
+     */
+    int sumRange(int fromDay, int toDay, int[] out) {
+        int from = firstSlotFrom(fromDay);
+        int to = firstSlotAfter(toDay);
+        if (to <= from) {
+            Arrays.fill(out, 0, EMOTIONS, 0);
+            return 0;
+        }
+        for (int e = 0; e < EMOTIONS; e++) {
+            out[e] = prefixEmotionCounts[to * EMOTIONS + e] - prefixEmotionCounts[from * EMOTIONS + e];
+        }
+        return prefixTotals[to] - prefixTotals[from];
+    }
+
+    /**
+     * Get the streak of an emotion ending on a day
+     *
+     * @param epochDay Last day of the streak
+     * @param ordinal Emotion ordinal
+     * @return Consecutive days up to epochDay with the emotion logged, 0 if
+     *         it was not logged on epochDay
+     */
+    int streakEndingOn(int epochDay, int ordinal) {
+        int slot = find(epochDay);
+        return slot < 0 ? 0 : streaks[slot * EMOTIONS + ordinal];
+    }
+
+    /**
+     * Find the longest streak of an emotion within a range
+     * Visits each day with rows in the range once
+     *
+     * @param fromDay First day key of the range, inclusive
+     * @param toDay Last day key of the range, inclusive
+     * @param ordinal Emotion ordinal
+     * @return Most consecutive days in the range with the emotion logged
+     */
+    int longestStreak(int fromDay, int toDay, int ordinal) {
+        int longest = 0;
+        for (int slot = firstSlotFrom(fromDay), end = firstSlotAfter(toDay); slot < end; slot++) {
+            // A streak that began before the range only counts from its start
+            int streak = Math.min(streaks[slot * EMOTIONS + ordinal], days[slot] - fromDay + 1);
+            longest = Math.max(longest, streak);
+        }
+        return longest;
+    }
+
+    /**
+     * Count the days with rows in a range
+     *
+     * @param fromDay First day key of the range, inclusive
+     * @param toDay Last day key of the range, inclusive
+     * @return Number of distinct days with rows
+     */
+    int countDays(int fromDay, int toDay) {
+        return Math.max(0, firstSlotAfter(toDay) - firstSlotFrom(fromDay));
+    }
+
+    /**
+     * Copy the per-emotion counters of a day
+     *
+     * @param slot Slot returned by {@link #find(int)}
+     * @param out Array of at least Emotion.values().length, indexed by ordinal
+     */
+    void copyEmotionCounts(int slot, int[] out) {
+        System.arraycopy(emotionCounts, slot * EMOTIONS, out, 0, EMOTIONS);
+    }
+
+    /**
+     * Recompute the running totals and streaks from a slot to the last day
+     * O(emotions) when the changed day is the most recent one
+     */
+    private void updateRunningTotals(int fromSlot) {
+        for (int slot = fromSlot; slot < size; slot++) {
+            prefixTotals[slot + 1] = prefixTotals[slot] + counts[slot];
+            int base = slot * EMOTIONS;
+            boolean follows = slot > 0 && days[slot - 1] == days[slot] - 1;
+            for (int e = 0; e < EMOTIONS; e++) {
+                prefixEmotionCounts[base + EMOTIONS + e] =
+                        prefixEmotionCounts[base + e] + emotionCounts[base + e];
+                if (emotionCounts[base + e] == 0) {
+                    streaks[base + e] = 0;
+                } else {
+                    streaks[base + e] = follows ? streaks[base - EMOTIONS + e] + 1 : 1;
+                }
+            }
+        }
+    }
+
+    private void shiftStarts(int fromSlot, int delta) {
+        for (int i = fromSlot; i < size; i++) {
+            starts[i] += delta;
+        }
+    }
+
+    private void openSlot(int slot) {
+        if (size == days.length) {
+            int capacity = size * 2;
+            days = Arrays.copyOf(days, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            emotionCounts = Arrays.copyOf(emotionCounts, capacity * EMOTIONS);
+            prefixTotals = Arrays.copyOf(prefixTotals, capacity + 1);
+            prefixEmotionCounts = Arrays.copyOf(prefixEmotionCounts, (capacity + 1) * EMOTIONS);
+            streaks = Arrays.copyOf(streaks, capacity * EMOTIONS);
+        }
+        int tail = size - slot;
+        System.arraycopy(days, slot, days, slot + 1, tail);
+        System.arraycopy(starts, slot, starts, slot + 1, tail);
+        System.arraycopy(counts, slot, counts, slot + 1, tail);
+        System.arraycopy(emotionCounts, slot * EMOTIONS,
+                emotionCounts, (slot + 1) * EMOTIONS, tail * EMOTIONS);
+        size++;
+    }
+
+    private void closeSlot(int slot) {
+        int tail = size - slot - 1;
+        System.arraycopy(days, slot + 1, days, slot, tail);
+        System.arraycopy(starts, slot + 1, starts, slot, tail);
+        System.arraycopy(counts, slot + 1, counts, slot, tail);
+        System.arraycopy(emotionCounts, (slot + 1) * EMOTIONS,
+                emotionCounts, slot * EMOTIONS, tail * EMOTIONS);
+        size--;
+    }
+}
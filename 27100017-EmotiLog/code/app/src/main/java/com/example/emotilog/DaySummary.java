@@ -0,0 +1,57 @@
+package com.example.emotilog;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DaySummary is the emotion breakdown of one day, ready to display.
+ * Design Rationale:
+ * - Immutable, so one computed on a background thread can be handed to the
+ *   main thread and kept in a cache without copying
+ * - Tagged with the history version it was read at; equal day and version
+ *   mean the summary is still correct
+ * - Items are already ranked by count, so showing it costs the main thread
+ *   nothing that grows with the number of logs
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.1
+ */
+public class DaySummary {
+    private final int epochDay;
+    private final long version;
+    private final int totalCount;
+    private final List<SummaryActivity.EmotionSummaryItem> items;
+
+    DaySummary(int epochDay, long version, int totalCount,
+               List<SummaryActivity.EmotionSummaryItem> items) {
+        this.epochDay = epochDay;
+        this.version = version;
+        this.totalCount = totalCount;
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return Day key of the summarised day, see {@link EmotionLogManager#getDateForDay(int)}
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * @return History version the counts were read at
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return Logged emotions with their counts, most frequent first
+     */
+    public List<SummaryActivity.EmotionSummaryItem> getItems() {
+        return items;
+    }
+}
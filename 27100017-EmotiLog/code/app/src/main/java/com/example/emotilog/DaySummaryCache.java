@@ -0,0 +1,96 @@
+package com.example.emotilog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DaySummaryCache keeps the most recently used day summaries.
+ * Design Rationale:
+ * - An access-ordered LinkedHashMap gives least-recently-used eviction with
+ *   no extra bookkeeping; the cache is bounded, so browsing years of dates
+ *   never grows memory
+ * - Entries are dropped per day by EmotionLogManager when a log on that day
+ *   is added or deleted, so an entry that is present is always current and
+ *   edits to one day leave every other cached day alone
+ * - Counts hits, misses and evictions for metrics
+ * - Synchronized: readers holding the manager's read lock share it, and an
+ *   access-ordered get reorders the map
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.1
+ */
+class DaySummaryCache {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private final int capacity;
+    private final LinkedHashMap<Integer, DaySummary> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity Most days kept at once
+     */
+    DaySummaryCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Integer, DaySummary>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, DaySummary> eldest) {
+                if (size() > DaySummaryCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up a day, counting a hit or a miss
+     *
+     * @return The cached summary, or null
+     */
+    synchronized DaySummary get(int epochDay) {
+        DaySummary summary = entries.get(epochDay);
+        if (summary == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return summary;
+    }
+
+    /**
+     * Look up a day, counting only a hit; for callers that will ask again
+     * with {@link #get(int)} on a miss
+     *
+     * @return The cached summary, or null
+     */
+    synchronized DaySummary peek(int epochDay) {
+        DaySummary summary = entries.get(epochDay);
+        if (summary != null) {
+            hits++;
+        }
+        return summary;
+    }
+
+    synchronized void put(DaySummary summary) {
+        entries.put(summary.getEpochDay(), summary);
+    }
+
+    /**
+     * Drop a day whose logs changed
+     */
+    synchronized void invalidate(int epochDay) {
+        entries.remove(epochDay);
+    }
+
+    synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    synchronized SummaryCacheStats stats() {
+        return new SummaryCacheStats(hits, misses, evictions, entries.size(), capacity);
+    }
+}
@@ -9,9 +9,11 @@ import java.io.Serializable;
  * - Implements Serializable to allow passing between activities via Intent
  * - Each emotion has a display name and an emoji representation
  * - Provides a color resource for visual consistency in the UI
+ * - Colors are parsed into ARGB ints once, when the enum is initialised, so
+ *   binding a row or animating a tap never parses a color string
  *
  * @author Muhammad Bin Tariq
- * @version 0.4
+ * @version 0.5
  */
 public enum Emotion implements Serializable {
     // Each emotion: display name, emoji, button color, background tint
@@ -29,6 +31,9 @@ public enum Emotion implements Serializable {
     private final String emoji;
     private final String colorCode;
     private final String backgroundTint;
+    private final String formattedDisplay;
+    private final int colorArgb;
+    private final int backgroundTintArgb;
 
     /**
      * Constructor for Emotion enum
@@ -36,23 +41,67 @@ public enum Emotion implements Serializable {
      * @param displayName The human-readable name of the emotion
      * @param emoji The emoji representation
      * @param colorCode The color code associated with this emotion
+     * @param backgroundTint The screen background color for this emotion
      */
     Emotion(String displayName, String emoji, String colorCode, String backgroundTint) {
-        this.displayName    = displayName;
-        this.emoji          = emoji;
-        this.colorCode      = colorCode;
-        this.backgroundTint = backgroundTint;
+        this.displayName        = displayName;
+        this.emoji              = emoji;
+        this.colorCode          = colorCode;
+        this.backgroundTint     = backgroundTint;
+        this.formattedDisplay   = emoji + " " + displayName;
+        this.colorArgb          = parseArgb(colorCode);
+        this.backgroundTintArgb = parseArgb(backgroundTint);
+    }
+
+    /**
+     * Parse a "#RRGGBB" or "#AARRGGBB" color, as Color.parseColor() does,
+     * without needing the Android framework
+     *
+     * @param code Color string
+     * @return ARGB color; fully opaque if the string has no alpha
+     * @throws IllegalArgumentException If the string is not a hex color
+     */
+    static int parseArgb(String code) {
+        int digits = code.length() - 1;
+        if ((digits != 6 && digits != 8) || code.charAt(0) != '#') {
+            throw new IllegalArgumentException("Unknown color " + code);
+        }
+        long value = 0;
+        for (int i = 1; i <= digits; i++) {
+            int digit = Character.digit(code.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Unknown color " + code);
+            }
+            value = (value << 4) | digit;
+        }
+        if (digits == 6) {
+            value |= 0xFF000000L;
+        }
+        return (int) value;
     }
 
     public String getDisplayName()    { return displayName; }
     public String getEmoji()          { return emoji; }
     public String getColorCode()      { return colorCode; }
 
+    /**
+     * @return Button color as an ARGB int, parsed from getColorCode()
+     */
+    public int getColorArgb()         { return colorArgb; }
+
     /**
      * Pastel/desaturated background color shown on the activity
      * when this emotion is logged.
      */
     public String getBackgroundTint() { return backgroundTint; }
 
-    public String getFormattedDisplay() { return emoji + " " + displayName; }
+    /**
+     * @return Background tint as an ARGB int, parsed from getBackgroundTint()
+     */
+    public int getBackgroundTintArgb() { return backgroundTintArgb; }
+
+    /**
+     * @return Emoji and name, e.g. for a button or row; built once, not per call
+     */
+    public String getFormattedDisplay() { return formattedDisplay; }
 }
\ No newline at end of file
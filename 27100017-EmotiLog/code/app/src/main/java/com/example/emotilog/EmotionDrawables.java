@@ -0,0 +1,70 @@
+package com.example.emotilog;
+
+import android.graphics.ColorFilter;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+
+/**
+ * EmotionDrawables holds the drawables and color filters shared by every
+ * screen that paints an emotion.
+ * Design Rationale:
+ * - One rounded button shape per emotion is built the first time it is
+ *   needed; buttons get copies made from its constant state, which share
+ *   the shape instead of rebuilding it
+ * - One color filter per emotion, created once and shared, since filters
+ *   are immutable; tinting a row allocates nothing
+ * - Indexed by Emotion ordinal in plain arrays, no map lookups
+ * - Main thread only, like the views that use it
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.1
+ */
+final class EmotionDrawables {
+    // Corner radius of 60px produces a pill-like shape at typical densities
+    private static final float BUTTON_CORNER_RADIUS = 60f;
+
+    private static final Drawable.ConstantState[] buttonShapes =
+            new Drawable.ConstantState[Emotion.values().length];
+    private static final ColorFilter[] colorFilters = new ColorFilter[Emotion.values().length];
+
+    private EmotionDrawables() {
+    }
+
+    /**
+     * Get a rounded button background in an emotion's color
+     * Each call returns a new drawable, since a drawable can only belong to
+     * one view, but all of them share one shape
+     *
+     * @param emotion Source of the fill color
+     * @return Drawable ready to set as a background
+     */
+    static Drawable roundedButton(Emotion emotion) {
+        Drawable.ConstantState state = buttonShapes[emotion.ordinal()];
+        if (state == null) {
+            GradientDrawable shape = new GradientDrawable();
+            shape.setShape(GradientDrawable.RECTANGLE);
+            shape.setCornerRadius(BUTTON_CORNER_RADIUS);
+            shape.setColor(emotion.getColorArgb());
+            state = shape.getConstantState();
+            buttonShapes[emotion.ordinal()] = state;
+        }
+        return state.newDrawable();
+    }
+
+    /**
+     * Get a filter that paints a drawable in an emotion's color
+     *
+     * @param emotion Source of the color
+     * @return Shared filter; do not modify
+     */
+    static ColorFilter colorFilter(Emotion emotion) {
+        ColorFilter filter = colorFilters[emotion.ordinal()];
+        if (filter == null) {
+            filter = new PorterDuffColorFilter(emotion.getColorArgb(), PorterDuff.Mode.SRC_IN);
+            colorFilters[emotion.ordinal()] = filter;
+        }
+        return filter;
+    }
+}
@@ -1,9 +1,7 @@
 package com.example.emotilog;
 
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
 
 /**
  * EmotionLog class represents a single emotion logging event.
@@ -11,21 +9,24 @@ import java.util.Locale;
  * - Encapsulates all data for a single emotion log entry
  * - Uses Date object for timestamp to allow for easy formatting and comparison
  * - Implements Serializable for data persistence and transfer
- * - Immutable ID using timestamp ensures unique identification
+ * - IDs come from LogIdGenerator, so they stay unique even when many logs
+ *   share a millisecond or are imported in bulk
+ * - Formatting goes through EmotionLogFormatter, which reuses formatters and
+ *   shares one date string per day across rows
  *
  * @author Muhammad Bin Tariq
- * @version 0.2
+ * @version 0.3
  */
 public class EmotionLog implements Serializable, Comparable<EmotionLog> {
     private static final long serialVersionUID = 1L;
 
     private Emotion emotion;
     private Date timestamp;
-    private long id; // Using timestamp as unique ID
+    private long id; // Unique, from LogIdGenerator
 
     public EmotionLog() {
         this.timestamp = new Date();
-        this.id = timestamp.getTime();
+        this.id = LogIdGenerator.next();
     }
 
     /**
@@ -48,7 +49,20 @@ public class EmotionLog implements Serializable, Comparable<EmotionLog> {
     public EmotionLog(Emotion emotion, Date timestamp) {
         this.emotion = emotion;
         this.timestamp = timestamp;
-        this.id = timestamp.getTime();
+        this.id = LogIdGenerator.next();
+    }
+
+    /**
+     * Constructor for a log read back from storage, keeping its original id
+     *
+     * @param id The id the log was stored with
+     * @param emotion The emotion being logged
+     * @param timestamp The timestamp for this log
+     */
+    EmotionLog(long id, Emotion emotion, Date timestamp) {
+        this.emotion = emotion;
+        this.timestamp = timestamp;
+        this.id = id;
     }
 
     public Emotion getEmotion() {
@@ -63,9 +77,16 @@ public class EmotionLog implements Serializable, Comparable<EmotionLog> {
         return timestamp;
     }
 
+    /**
+     * Change the timestamp of this log
+     * The log is given a new id, as it was when ids were derived from
+     * timestamps; a log already added to the manager keeps its stored id
+     *
+     * @param timestamp The new timestamp
+     */
     public void setTimestamp(Date timestamp) {
         this.timestamp = timestamp;
-        this.id = timestamp.getTime();
+        this.id = LogIdGenerator.next();
     }
 
     public long getId() {
@@ -78,8 +99,7 @@ public class EmotionLog implements Serializable, Comparable<EmotionLog> {
      * @return Formatted timestamp string (e.g., "Feb 14, 2026 10:30:45 AM")
      */
     public String getFormattedTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy hh:mm:ss a", Locale.getDefault());
-        return sdf.format(timestamp);
+        return EmotionLogFormatter.formatTimestamp(timestamp.getTime());
     }
 
     /**
@@ -88,8 +108,7 @@ public class EmotionLog implements Serializable, Comparable<EmotionLog> {
      * @return Formatted time string (e.g., "10:30:45 AM")
      */
     public String getFormattedTime() {
-        SimpleDateFormat sdf = new SimpleDateFormat("hh:mm:ss a", Locale.getDefault());
-        return sdf.format(timestamp);
+        return EmotionLogFormatter.formatTime(timestamp.getTime());
     }
 
     /**
@@ -98,8 +117,7 @@ public class EmotionLog implements Serializable, Comparable<EmotionLog> {
      * @return Formatted date string (e.g., "Feb 14, 2026")
      */
     public String getFormattedDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        return sdf.format(timestamp);
+        return EmotionLogFormatter.formatDate(timestamp.getTime());
     }
 
     /**
@@ -1,117 +1,308 @@
 package com.example.emotilog;
 
-import android.content.Context;
 import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * EmotionLogAdapter is a custom adapter for displaying EmotionLog objects in a ListView.
+ * EmotionLogAdapter is a custom adapter for displaying EmotionLog objects in a RecyclerView.
  * Design Rationale:
- * - Extends ArrayAdapter for easy integration with ListView
- * - Follows the ViewHolder pattern for efficient view recycling
- * - Color-codes each log entry based on emotion type
- * - Separates date and time for better readability
+ * - RecyclerView adapter, so rows are recycled and changes are animated
+ *   row by row instead of rebinding the whole list
+ * - The adapter owns its rows: a page is appended with one range insert,
+ *   and a reload replaces only the run of rows it re-read, diffed against
+ *   that run on a background thread; adding one log binds one row and
+ *   leaves the scroll position alone
+ * - Stable ids come from EmotionLog.getId(), so rows keep their identity
+ *   across reloads; a placeholder's id comes from its day and its place
+ *   within the day, so a new log above it does not change it
+ * - Color-codes each log entry with the emotion's pre-parsed color
+ * - Rows are grouped by day: the first row of each day shows a day header,
+ *   found in the manager's LogSectionIndex, so rows format no dates
+ * - Rows beside an inserted or removed block are rebound too, since their
+ *   header may have appeared or gone
+ * - Rows not read yet are null placeholders: a jump far down the list
+ *   loads only the rows it lands on, and the rows skipped over are filled
+ *   in when they come into view; their day headers still show, since
+ *   the sections cover every row
  *
  * @author Muhammad Bin Tariq
- * @version 0.2
+ * @version 0.7
  */
-public class EmotionLogAdapter extends ArrayAdapter<EmotionLog> {
+public class EmotionLogAdapter extends RecyclerView.Adapter<EmotionLogAdapter.ViewHolder> {
 
-    private Context context;
-    private List<EmotionLog> logs;
+    private final List<EmotionLog> logs = new ArrayList<>(); // main thread only; null if not read
+    private LogSectionIndex sections; // matches the current rows, or null
 
-    public EmotionLogAdapter(Context context, List<EmotionLog> logs) {
-        super(context, 0, logs);
-        this.context = context;
-        this.logs = logs;
+    public EmotionLogAdapter() {
+        setHasStableIds(true);
     }
 
     /**
-     * ViewHolder pattern for efficient view recycling
+     * Holds the views of one row
      * Caches view references to avoid repeated findViewById calls
      */
-    private static class ViewHolder {
-        TextView tvEmotion;
-        TextView tvDate;
-        TextView tvTime;
-        View colorIndicator;
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvDayHeader;
+        final TextView tvEmotion;
+        final TextView tvTime;
+        final View colorIndicator;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            tvDayHeader = itemView.findViewById(R.id.tv_day_header);
+            tvEmotion = itemView.findViewById(R.id.tv_emotion);
+            tvTime = itemView.findViewById(R.id.tv_time);
+            colorIndicator = itemView.findViewById(R.id.color_indicator);
+        }
     }
 
     /**
-     * Get a view that displays the data at the specified position
-     *
-     * @param position Position of the item in the adapter's data set
-     * @param convertView The old view to reuse, if possible
-     * @param parent The parent that this view will eventually be attached to
-     * @return A View corresponding to the data at the specified position
+     * Dispatches the updates of a diffed run of rows at the run's position
      */
+    private class RunUpdateCallback implements ListUpdateCallback {
+        private final int from;
+
+        RunUpdateCallback(int from) {
+            this.from = from;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            notifyItemRangeInserted(from + position, count);
+            // The row after the block may no longer start its day
+            if (from + position + count < getItemCount()) {
+                notifyItemChanged(from + position + count);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyItemRangeRemoved(from + position, count);
+            // The row that moved up may now start its day
+            if (from + position < getItemCount()) {
+                notifyItemChanged(from + position);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(from + fromPosition, from + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            notifyItemRangeChanged(from + position, count, payload);
+        }
+    }
+
     @NonNull
     @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-        ViewHolder holder;
-
-        // Check if we're reusing a view
-        if (convertView == null) {
-            // Inflate new view
-            convertView = LayoutInflater.from(context).inflate(R.layout.item_emotion_log, parent, false);
-
-            // Create ViewHolder
-            holder = new ViewHolder();
-            holder.tvEmotion = convertView.findViewById(R.id.tv_emotion);
-            holder.tvDate = convertView.findViewById(R.id.tv_date);
-            holder.tvTime = convertView.findViewById(R.id.tv_time);
-            holder.colorIndicator = convertView.findViewById(R.id.color_indicator);
-
-            // Store holder in the view
-            convertView.setTag(holder);
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_emotion_log, parent, false);
+        return new ViewHolder(view);
+    }
+
+    /**
+     * Show the log at a position in a recycled row
+     *
+     * @param holder Row to fill
+     * @param position Position of the log in the current list
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        EmotionLog log = logs.get(position);
+
+        // Day header on the first row of each day; day strings are cached
+        int section = sections == null ? -1 : sections.getSectionStartingAt(position);
+        if (section >= 0) {
+            holder.tvDayHeader.setText(EmotionLogFormatter.formatDay(sections.getDay(section)));
+            holder.tvDayHeader.setVisibility(View.VISIBLE);
         } else {
-            // Reuse existing view
-            holder = (ViewHolder) convertView.getTag();
+            holder.tvDayHeader.setVisibility(View.GONE);
+        }
+
+        if (log == null) {
+            // Placeholder until its page is read
+            holder.tvEmotion.setText(null);
+            holder.tvTime.setText(null);
+            holder.colorIndicator.setBackgroundColor(Color.TRANSPARENT);
+            return;
         }
 
-        // Get the current log
+        // Set emotion text with emoji
+        holder.tvEmotion.setText(log.getEmotion().getFormattedDisplay());
+
+        // Set time
+        holder.tvTime.setText(log.getFormattedTime());
+
+        // Set color indicator; parsed once by the enum
+        holder.colorIndicator.setBackgroundColor(log.getEmotion().getColorArgb());
+    }
+
+    @Override
+    public int getItemCount() {
+        return logs.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
         EmotionLog log = logs.get(position);
+        return log != null ? log.getId() : placeholderId(position);
+    }
 
-        if (log != null) {
-            // Set emotion text with emoji
-            holder.tvEmotion.setText(log.getEmotion().getFormattedDisplay());
+    /**
+     * Id of a placeholder row, from its day and its place counted from the
+     * day's oldest log; logs added to newer days or later in the same day
+     * leave it unchanged, where a position would shift
+     * Log ids are positive and these are negative, so they never collide
+     */
+    private long placeholderId(int position) {
+        int section = sections == null ? -1 : sections.getSectionOfRow(position);
+        if (section < 0) {
+            return -1 - position;
+        }
+        int dayEnd = section + 1 < sections.getSectionCount()
+                ? sections.getFirstRow(section + 1) : sections.getTotalCount();
+        return Long.MIN_VALUE | ((long) (sections.getDay(section) & 0x7FFFFFFF) << 32)
+                | (dayEnd - position);
+    }
 
-            // Set date
-            holder.tvDate.setText(log.getFormattedDate());
+    /**
+     * @param position Row position
+     * @return true if the row is a placeholder whose log has not been read
+     */
+    public boolean isPlaceholder(int position) {
+        return logs.get(position) == null;
+    }
+
+    /**
+     * @return Day sections of the logs currently shown, or null before the first list
+     */
+    public LogSectionIndex getSections() {
+        return sections;
+    }
 
-            // Set time
-            holder.tvTime.setText(log.getFormattedTime());
+    /**
+     * Copy a run of the rows shown, to diff against off the main thread
+     *
+     * @param from First row
+     * @param to Row after the last
+     * @return Copy of rows [from, to)
+     */
+    List<EmotionLog> copyLogs(int from, int to) {
+        return new ArrayList<>(logs.subList(from, to));
+    }
 
-            // Set color indicator
-            try {
-                int color = Color.parseColor(log.getEmotion().getColorCode());
-                holder.colorIndicator.setBackgroundColor(color);
-            } catch (IllegalArgumentException e) {
-                holder.colorIndicator.setBackgroundColor(Color.LTGRAY);
+    /**
+     * Work out how one run of rows turns into another
+     * Pure computation; call it off the main thread
+     *
+     * @param oldRows Rows shown now
+     * @param newRows Rows to show instead
+     * @return Diff to hand to {@link #replaceLogs}
+     */
+    static DiffUtil.DiffResult diff(final List<EmotionLog> oldRows, final List<EmotionLog> newRows) {
+        // Rows are time-ordered, so nothing ever moves
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldRows.size();
             }
-        }
 
-        return convertView;
+            @Override
+            public int getNewListSize() {
+                return newRows.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                EmotionLog oldLog = oldRows.get(oldPosition);
+                EmotionLog newLog = newRows.get(newPosition);
+                if (oldLog == null || newLog == null) {
+                    return oldLog == newLog; // placeholders
+                }
+                return oldLog.getId() == newLog.getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                EmotionLog oldLog = oldRows.get(oldPosition);
+                EmotionLog newLog = newRows.get(newPosition);
+                if (oldLog == null || newLog == null) {
+                    return oldLog == newLog;
+                }
+                return oldLog.getEmotion() == newLog.getEmotion()
+                        && oldLog.getTimestamp().getTime() == newLog.getTimestamp().getTime();
+            }
+        }, false);
+    }
+
+    /**
+     * Replace a run of rows with a re-read copy; only the rows the diff
+     * found different are rebound
+     *
+     * @param from First row of the run
+     * @param to Row after the last row of the run
+     * @param newRows Rows replacing the run
+     * @param diff Diff from the run, as copied by copyLogs(), to newRows
+     * @param newSections Day sections of the history the rows were read from
+     */
+    public void replaceLogs(int from, int to, List<EmotionLog> newRows,
+                            DiffUtil.DiffResult diff, LogSectionIndex newSections) {
+        logs.subList(from, to).clear();
+        logs.addAll(from, newRows);
+        sections = newSections;
+        diff.dispatchUpdatesTo(new RunUpdateCallback(from));
     }
 
     /**
-     * Update the adapter with new data
+     * Show a page further down than the rows loaded so far, with
+     * placeholders for the rows in between
      *
-     * @param newLogs New list of emotion logs
+     * @param position List position of the page's first log; not below getItemCount()
+     * @param page Logs from that position on
+     * @param newSections Day sections of the history the page was read from
      */
-    public void updateLogs(List<EmotionLog> newLogs) {
-        this.logs = newLogs;
-        clear();
-        addAll(newLogs);
-        notifyDataSetChanged();
+    public void appendLogsAt(int position, List<EmotionLog> page, LogSectionIndex newSections) {
+        int start = logs.size();
+        logs.addAll(Collections.<EmotionLog>nCopies(position - start, null));
+        logs.addAll(page);
+        sections = newSections;
+        notifyItemRangeInserted(start, logs.size() - start);
+    }
+
+    /**
+     * Put read logs into the placeholders they belong to
+     *
+     * @param position List position of the first log
+     * @param page Logs from that position on, read at the version shown
+     */
+    public void fillLogs(int position, List<EmotionLog> page) {
+        int end = Math.min(logs.size(), position + page.size());
+        int first = -1;
+        int last = -1;
+        for (int p = position; p < end; p++) {
+            if (logs.get(p) == null) {
+                logs.set(p, page.get(p - position));
+                first = first < 0 ? p : first;
+                last = p;
+            }
+        }
+        if (first >= 0) {
+            notifyItemRangeChanged(first, last - first + 1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package com.example.emotilog;
+
+import java.util.Date;
+
+/**
+ * EmotionLogChange describes one change to the emotion history.
+ * Design Rationale:
+ * - Published by EmotionLogManager to its listeners after every write, so
+ *   screens react to changes instead of re-querying on every resume
+ * - Names the local days it touched, letting a screen that shows one day
+ *   ignore changes to any other, and a list re-read only those days
+ * - Carries the manager's version after the change; versions only grow, so
+ *   a screen can tell whether what it shows is current
+ * - The touched day range is public, in the same day keys the manager
+ *   hands out, so a list can re-read just the days between the oldest and
+ *   newest a change touched
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.4
+ */
+public class EmotionLogChange {
+
+    /**
+     * Kind of change
+     */
+    public enum Type {
+        /** Logs were added */
+        INSERTED,
+        /** Logs were deleted */
+        DELETED,
+        /** Every log was deleted */
+        CLEARED,
+        /** The history finished loading, or was regrouped into days of a new time zone */
+        LOADED
+    }
+
+    private final Type type;
+    private final int[] epochDays;
+    private final long version;
+    private final int totalCount;
+
+    EmotionLogChange(Type type, int[] epochDays, long version, int totalCount) {
+        this.type = type;
+        this.epochDays = epochDays;
+        this.version = version;
+        this.totalCount = totalCount;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return Manager version right after this change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Total number of logs right after this change
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Day keys are those of {@link EmotionLogManager#getLogDays()}
+     *
+     * @return Newest day key the change touched, Integer.MAX_VALUE if it may
+     * have touched any day, Integer.MIN_VALUE if it touched none
+     */
+    public int getNewestDay() {
+        if (type == Type.CLEARED || type == Type.LOADED) {
+            return Integer.MAX_VALUE;
+        }
+        int newest = Integer.MIN_VALUE;
+        for (int day : epochDays) {
+            newest = Math.max(newest, day);
+        }
+        return newest;
+    }
+
+    /**
+     * @return Oldest day key the change touched, Integer.MIN_VALUE if it may
+     * have touched any day, Integer.MAX_VALUE if it touched none
+     */
+    public int getOldestDay() {
+        if (type == Type.CLEARED || type == Type.LOADED) {
+            return Integer.MIN_VALUE;
+        }
+        int oldest = Integer.MAX_VALUE;
+        for (int day : epochDays) {
+            oldest = Math.min(oldest, day);
+        }
+        return oldest;
+    }
+
+    /**
+     * Check whether this change may alter what is shown for a day
+     *
+     * @param epochDay Day key, as from {@link EmotionLogManager#getLogDays()}
+     * @return true if logs of that day were added or deleted
+     */
+    public boolean affectsDay(int epochDay) {
+        if (type == Type.CLEARED || type == Type.LOADED) {
+            return true;
+        }
+        for (int day : epochDays) {
+            if (day == epochDay) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether this change may alter what is shown for a date
+     *
+     * @param date Any moment within the day of interest
+     * @return true if logs of that day were added or deleted
+     */
+    public boolean affectsDate(Date date) {
+        return affectsDay(EpochDays.of(date.getTime()));
+    }
+}
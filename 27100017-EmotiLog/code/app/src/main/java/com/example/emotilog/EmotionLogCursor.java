@@ -0,0 +1,134 @@
+package com.example.emotilog;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * EmotionLogCursor is a flyweight view over the logs held by EmotionLogManager.
+ * Design Rationale:
+ * - Reads rows straight from the store's primitive columns, so walking the
+ *   whole history creates no EmotionLog or Date objects
+ * - One cursor is moved from row to row instead of one object per row
+ * - Rows are in reverse chronological order (position 0 is the most recent)
+ * - Like a database cursor, it reflects the store as it is; positions move
+ *   when logs are added or deleted, so re-query after a change
+ * - Every read takes the manager's read lock, so a cursor is safe to use
+ *   while other threads write
+ * - moveToPosition() pins the id of the log it lands on, and every read
+ *   checks the row still holds that log; a log deleted or shifted by a
+ *   write since the move is an IllegalStateException, never another
+ *   row's data
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+public class EmotionLogCursor {
+    private final EmotionLogStore store;
+    private final Lock readLock;
+    private int position = -1;
+    private long id; // log pinned by the last move
+
+    EmotionLogCursor(EmotionLogStore store, Lock readLock) {
+        this.store = store;
+        this.readLock = readLock;
+    }
+
+    /**
+     * @return Number of rows visible to this cursor
+     */
+    public int getCount() {
+        readLock.lock();
+        try {
+            return store.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Move to an absolute row and pin the log on it
+     *
+     * @param position Row to move to, 0 for the most recent log
+     * @return true if the row exists
+     */
+    public boolean moveToPosition(int position) {
+        readLock.lock();
+        try {
+            if (position < 0 || position >= store.size()) {
+                this.position = -1;
+                return false;
+            }
+            this.position = position;
+            this.id = store.getId(position);
+            return true;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @return Id of the log the cursor is on
+     * @throws IllegalStateException if the cursor is not on a row
+     */
+    public long getId() {
+        checkMoved();
+        return id;
+    }
+
+    /**
+     * @return Timestamp of the current row in milliseconds
+     * @throws IllegalStateException if the pinned log is no longer on its row
+     */
+    public long getTimestamp() {
+        readLock.lock();
+        try {
+            checkPosition();
+            return store.getTimestamp(position);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @return Emotion of the current row
+     * @throws IllegalStateException if the pinned log is no longer on its row
+     */
+    public Emotion getEmotion() {
+        readLock.lock();
+        try {
+            checkPosition();
+            return store.getEmotion(position);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Copy the current row into a standalone object
+     *
+     * @return New EmotionLog with the current row's values
+     * @throws IllegalStateException if the pinned log is no longer on its row
+     */
+    public EmotionLog toEmotionLog() {
+        readLock.lock();
+        try {
+            checkPosition();
+            return store.get(position);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void checkMoved() {
+        if (position < 0) {
+            throw new IllegalStateException("Cursor is not positioned on a row");
+        }
+    }
+
+    // Caller holds the read lock
+    private void checkPosition() {
+        checkMoved();
+        if (position >= store.size() || store.getId(position) != id) {
+            throw new IllegalStateException("Log at row " + position + " was removed or moved");
+        }
+    }
+}
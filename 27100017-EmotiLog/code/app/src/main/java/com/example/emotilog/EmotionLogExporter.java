@@ -0,0 +1,168 @@
+package com.example.emotilog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * EmotionLogExporter streams the emotion history straight out of the store.
+ * Design Rationale:
+ * - Rows are copied out of the store's columns a chunk at a time under the
+ *   read lock, then encoded and written with the lock released, so slow
+ *   disks or networks never hold up writers
+ * - One chunk of columns and one byte buffer are reused for the whole
+ *   export, so memory stays constant however large the history is
+ * - Records are encoded byte by byte; no String, EmotionLog or Date is
+ *   created per row
+ * - A date range is turned into a starting row through the day index, so
+ *   exporting last night's logs does not walk the whole history
+ * - Between chunks the export resumes from the last timestamp written, so
+ *   it never breaks when logs are added or deleted meanwhile; such logs may
+ *   or may not be included
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.1
+ */
+class EmotionLogExporter {
+    private static final int CHUNK_ROWS = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Longest record: a JSON line with two 20 character numbers
+    private static final int MAX_RECORD_SIZE = 128;
+
+    private final EmotionLogStore store;
+    private final Lock readLock;
+    private final byte[][] emotionNames;
+
+    private final long[] ids = new long[CHUNK_ROWS];
+    private final long[] timestamps = new long[CHUNK_ROWS];
+    private final byte[] emotions = new byte[CHUNK_ROWS];
+    private final byte[] digits = new byte[20];
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    EmotionLogExporter(EmotionLogStore store, Lock readLock) {
+        this.store = store;
+        this.readLock = readLock;
+        Emotion[] values = Emotion.values();
+        emotionNames = new byte[values.length][];
+        for (Emotion emotion : values) {
+            emotionNames[emotion.ordinal()] = emotion.name().getBytes(); // ASCII
+        }
+    }
+
+    /**
+     * Write the logs of a range of local days, oldest first
+     *
+     * @param out Destination; written to but not closed
+     * @param format Layout of the records
+     * @param fromDay First day key to include
+     * @param toDay Last day key to include
+     * @return Number of logs written
+     * @throws IOException If the destination cannot be written
+     */
+    int export(WritableByteChannel out, EmotionLogFormat format, int fromDay, int toDay)
+            throws IOException {
+        buffer.clear();
+        writeHeader(format);
+
+        int exported = 0;
+        long lastTime = 0;
+        int lastTimeRows = 0; // rows written so far with timestamp lastTime
+        boolean started = false;
+        while (true) {
+            int rows;
+            readLock.lock();
+            try {
+                int row = started
+                        ? store.firstRowAtOrAfter(lastTime) + lastTimeRows
+                        : store.firstRowOfDay(fromDay);
+                rows = store.copyRows(row, ids, timestamps, emotions, CHUNK_ROWS);
+            } finally {
+                readLock.unlock();
+            }
+
+            for (int i = 0; i < rows; i++) {
+                long time = timestamps[i];
+                if (EpochDays.of(time) > toDay) {
+                    flush(out);
+                    return exported;
+                }
+                if (buffer.remaining() < MAX_RECORD_SIZE) {
+                    flush(out);
+                }
+                writeRecord(format, ids[i], time, emotions[i]);
+                exported++;
+                if (started && time == lastTime) {
+                    lastTimeRows++;
+                } else {
+                    lastTime = time;
+                    lastTimeRows = 1;
+                    started = true;
+                }
+            }
+            if (rows < CHUNK_ROWS) {
+                flush(out);
+                return exported;
+            }
+        }
+    }
+
+    private void writeHeader(EmotionLogFormat format) {
+        if (format == EmotionLogFormat.BINARY) {
+            buffer.putInt(EmotionLogFormat.BINARY_MAGIC).putInt(EmotionLogFormat.BINARY_VERSION);
+        } else if (format == EmotionLogFormat.CSV) {
+            putAscii(EmotionLogFormat.CSV_HEADER);
+            buffer.put((byte) '\n');
+        }
+    }
+
+    private void writeRecord(EmotionLogFormat format, long id, long time, byte ordinal) {
+        switch (format) {
+            case BINARY:
+                buffer.putLong(time).put(ordinal);
+                break;
+            case JSON_LINES:
+                putAscii("{\"id\":");
+                putDecimal(id);
+                putAscii(",\"timestamp\":");
+                putDecimal(time);
+                putAscii(",\"emotion\":\"");
+                buffer.put(emotionNames[ordinal]);
+                putAscii("\"}\n");
+                break;
+            default:
+                putDecimal(time);
+                buffer.put((byte) ',').put(emotionNames[ordinal]).put((byte) '\n');
+                break;
+        }
+    }
+
+    private void putAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void putDecimal(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        int length = 0;
+        do {
+            // abs() per digit keeps Long.MIN_VALUE correct
+            digits[length++] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        while (length > 0) {
+            buffer.put(digits[--length]);
+        }
+    }
+
+    private void flush(WritableByteChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.emotilog;
+
+/**
+ * File formats the emotion history can be exported to and imported from.
+ * Design Rationale:
+ * - CSV is what people edit by hand or export from spreadsheets; BINARY is
+ *   the compact form for moving large histories between devices; JSON_LINES
+ *   is what analytics pipelines ingest
+ * - CSV and BINARY carry only the timestamp and the emotion; ids belong to
+ *   the device that stores the log, so imported logs are given new ones
+ * - Whatever is exported as CSV or BINARY can be imported again
+ *
+ * CSV: one "timestamp,emotion" line per log, where timestamp is
+ * milliseconds since the epoch and emotion an Emotion name in any case
+ * (e.g. "1771065045000,HAPPY"). A "timestamp,emotion" header line is
+ * optional and blank lines are ignored.
+ *
+ * BINARY: the magic number 0x454D4C58 ("EMLX") and a format version, both
+ * big-endian ints, then one 9 byte record per log: the timestamp as a
+ * big-endian long and the Emotion ordinal as a byte.
+ *
+ * JSON_LINES (export only): one object per line, e.g.
+ * {"id":1857...,"timestamp":1771065045000,"emotion":"HAPPY"}
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+public enum EmotionLogFormat {
+    CSV,
+    JSON_LINES,
+    BINARY;
+
+    static final int BINARY_MAGIC = 0x454D4C58; // "EMLX"
+    static final int BINARY_VERSION = 1;
+    static final int BINARY_RECORD_SIZE = 9;
+    static final String CSV_HEADER = "timestamp,emotion";
+}
@@ -0,0 +1,183 @@
+package com.example.emotilog;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * EmotionLogFormatter turns log timestamps into display strings.
+ * Design Rationale:
+ * - Formatters are created once per thread and locale instead of once per
+ *   call; SimpleDateFormat is not thread-safe, so each thread keeps its own
+ * - Date strings are cached per local day, so every row of the same day
+ *   shares one String and only the first row of a day is formatted
+ * - The day cache is direct-mapped by day key; a window of consecutive days
+ *   never collides, and a lookup allocates nothing
+ * - Formatters use the same time zone as EpochDays, so a row's date string
+ *   always agrees with the day it is grouped under; formatters and the day
+ *   cache remember the EpochDays generation they were built in and are
+ *   rebuilt on first use after a time zone change, one int compare per call
+ * - The summary screen's long date ("Monday, Feb 14, 2026") comes from the
+ *   same per-thread formatters, so it follows the same zone and locale
+ * - java.time's DateTimeFormatter would need API 26 or core library
+ *   desugaring; the app targets API 24, so java.text is used
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.3
+ */
+final class EmotionLogFormatter {
+    static final String DATE_PATTERN = "MMM dd, yyyy";
+    static final String TIME_PATTERN = "hh:mm:ss a";
+    static final String LONG_DATE_PATTERN = "EEEE, MMM dd, yyyy";
+
+    // Power of two; also the span of consecutive days that can be cached
+    private static final int DAY_CACHE_SIZE = 512;
+
+    private static final ThreadLocal<Formats> FORMATS = new ThreadLocal<>();
+
+    private static volatile DayCache dayCache = new DayCache(Locale.getDefault(), EpochDays.generation());
+
+    private EmotionLogFormatter() {
+    }
+
+    /**
+     * Format the local date of a timestamp
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Formatted date string (e.g., "Feb 14, 2026")
+     */
+    static String formatDate(long millis) {
+        return formatDay(EpochDays.of(millis), millis);
+    }
+
+    /**
+     * Format a local day
+     *
+     * @param epochDay Day key from {@link EpochDays#of(long)}
+     * @return Formatted date string (e.g., "Feb 14, 2026")
+     */
+    static String formatDay(int epochDay) {
+        return formatDay(epochDay, EpochDays.noonOf(epochDay));
+    }
+
+    /**
+     * Format the local date of a timestamp with its day of the week
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Formatted date string (e.g., "Saturday, Feb 14, 2026")
+     */
+    static String formatLongDate(long millis) {
+        Formats formats = formats();
+        formats.date.setTime(millis);
+        return formats.longDate.format(formats.date);
+    }
+
+    /**
+     * Format the local time of a timestamp
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Formatted time string (e.g., "10:30:45 AM")
+     */
+    static String formatTime(long millis) {
+        Formats formats = formats();
+        formats.date.setTime(millis);
+        return formats.time.format(formats.date);
+    }
+
+    /**
+     * Format the local date and time of a timestamp
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Formatted timestamp string (e.g., "Feb 14, 2026 10:30:45 AM")
+     */
+    static String formatTimestamp(long millis) {
+        return formatDate(millis) + " " + formatTime(millis);
+    }
+
+    private static String formatDay(int epochDay, long millis) {
+        DayCache cache = dayCache;
+        Locale locale = Locale.getDefault();
+        int generation = EpochDays.generation();
+        if (!cache.locale.equals(locale) || cache.generation != generation) {
+            // Locale or zone changed: strings of the old one must not be reused
+            cache = new DayCache(locale, generation);
+            dayCache = cache;
+        }
+
+        int slot = epochDay & (DAY_CACHE_SIZE - 1);
+        DayEntry entry = cache.entries[slot];
+        if (entry != null && entry.epochDay == epochDay) {
+            return entry.text;
+        }
+
+        Formats formats = formats();
+        formats.date.setTime(millis);
+        String text = formats.day.format(formats.date);
+        if (formats.generation == cache.generation) {
+            cache.entries[slot] = new DayEntry(epochDay, text);
+        }
+        return text;
+    }
+
+    private static Formats formats() {
+        Formats formats = FORMATS.get();
+        Locale locale = Locale.getDefault();
+        int generation = EpochDays.generation();
+        if (formats == null || !formats.locale.equals(locale) || formats.generation != generation) {
+            formats = new Formats(locale, generation);
+            FORMATS.set(formats);
+        }
+        return formats;
+    }
+
+    /**
+     * One thread's formatters for one locale and time zone
+     */
+    private static final class Formats {
+        final Locale locale;
+        final int generation;
+        final SimpleDateFormat day;
+        final SimpleDateFormat time;
+        final SimpleDateFormat longDate;
+        final Date date = new Date();
+
+        Formats(Locale locale, int generation) {
+            this.locale = locale;
+            this.generation = generation;
+            TimeZone zone = EpochDays.zone(); // after the generation was read
+            day = new SimpleDateFormat(DATE_PATTERN, locale);
+            time = new SimpleDateFormat(TIME_PATTERN, locale);
+            longDate = new SimpleDateFormat(LONG_DATE_PATTERN, locale);
+            day.setTimeZone(zone);
+            time.setTimeZone((TimeZone) zone.clone());
+            longDate.setTimeZone((TimeZone) zone.clone());
+        }
+    }
+
+    /**
+     * Date strings of one locale and time zone, indexed by day key
+     * Slots may be overwritten by any thread; entries are immutable, so a
+     * reader sees either a whole entry or none
+     */
+    private static final class DayCache {
+        final Locale locale;
+        final int generation;
+        final DayEntry[] entries = new DayEntry[DAY_CACHE_SIZE];
+
+        DayCache(Locale locale, int generation) {
+            this.locale = locale;
+            this.generation = generation;
+        }
+    }
+
+    private static final class DayEntry {
+        final int epochDay;
+        final String text;
+
+        DayEntry(int epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.emotilog;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * EmotionLogImporter parses a batch of historical logs into primitive columns.
+ * Design Rationale:
+ * - Records go straight into parallel long/byte arrays; no EmotionLog, Date
+ *   or String is created per record, so a million records parse in well
+ *   under a second
+ * - CSV is parsed byte by byte from a reusable buffer instead of through
+ *   readLine() and split()
+ * - Progress is reported every BATCH_SIZE records, which keeps callbacks
+ *   rare enough not to slow parsing down
+ * - The parsed batch is sorted once, so EmotionLogStore can merge it in a
+ *   single pass; already-ordered input (the usual case for exports) skips
+ *   the sort entirely
+ * - A malformed record fails the whole import, naming the line or record,
+ *   so a bad file never leaves half of itself behind; so does a timestamp
+ *   outside EpochDays' supported range, which would corrupt the day index
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+class EmotionLogImporter {
+    static final int BATCH_SIZE = 8192;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Emotion[] emotionValues = Emotion.values();
+    private final byte[][] emotionNames;
+    private final EmotionLogManager.ImportListener listener;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private byte[] emotions = new byte[INITIAL_CAPACITY];
+    private int size;
+    private boolean needsIds;
+
+    /**
+     * @param listener Receives progress, or null
+     */
+    EmotionLogImporter(EmotionLogManager.ImportListener listener) {
+        this.listener = listener;
+        emotionNames = new byte[emotionValues.length][];
+        for (Emotion emotion : emotionValues) {
+            // Enum names are ASCII
+            emotionNames[emotion.ordinal()] = emotion.name().getBytes();
+        }
+    }
+
+    /**
+     * Parse a whole stream
+     * New logs get ids once the batch is sorted, see {@link #prepare()}
+     *
+     * @param in Source of the records; read to the end but not closed
+     * @param format Layout of the records
+     * @throws IOException If the stream cannot be read or holds a bad record
+     */
+    void read(InputStream in, EmotionLogFormat format) throws IOException {
+        needsIds = true;
+        if (format == EmotionLogFormat.BINARY) {
+            readBinary(in);
+        } else {
+            readCsv(in);
+        }
+    }
+
+    /**
+     * Take logs that already exist as objects, keeping their ids
+     *
+     * @param logs Logs to import
+     * @throws IOException If a log's timestamp is out of range
+     */
+    void readAll(Iterator<EmotionLog> logs) throws IOException {
+        while (logs.hasNext()) {
+            EmotionLog log = logs.next();
+            if (!add(log.getId(), log.getTimestamp().getTime(), log.getEmotion().ordinal())) {
+                throw new IOException("Log " + (size + 1) + ": timestamp out of range");
+            }
+        }
+    }
+
+    /**
+     * Sort the batch by time and assign ids to logs parsed from a stream
+     * Ids are assigned after sorting, so they grow with the timestamps
+     */
+    void prepare() {
+        if (!isSorted()) {
+            long[] idBuffer = new long[size];
+            long[] timeBuffer = new long[size];
+            byte[] emotionBuffer = new byte[size];
+            sort(0, size, idBuffer, timeBuffer, emotionBuffer);
+        }
+        if (needsIds && size > 0) {
+            long first = LogIdGenerator.reserve(size);
+            for (int i = 0; i < size; i++) {
+                ids[i] = first + i;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] ids() {
+        return ids;
+    }
+
+    long[] timestamps() {
+        return timestamps;
+    }
+
+    byte[] emotions() {
+        return emotions;
+    }
+
+    private void readCsv(InputStream in) throws IOException {
+        byte[] chunk = new byte[READ_BUFFER_SIZE];
+        byte[] line = new byte[64];
+        int lineLength = 0;
+        int lineNumber = 0;
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            for (int i = 0; i < n; i++) {
+                byte b = chunk[i];
+                if (b == '\n') {
+                    parseCsvLine(line, lineLength, ++lineNumber);
+                    lineLength = 0;
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, lineLength * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+        }
+        if (lineLength > 0) {
+            parseCsvLine(line, lineLength, ++lineNumber);
+        }
+    }
+
+    private void parseCsvLine(byte[] line, int length, int lineNumber) throws IOException {
+        int end = length;
+        while (end > 0 && (line[end - 1] == '\r' || line[end - 1] == ' ')) {
+            end--;
+        }
+        int pos = 0;
+        while (pos < end && line[pos] == ' ') {
+            pos++;
+        }
+        if (pos == end) {
+            return; // blank line
+        }
+        if (lineNumber == 1 && line[pos] != '-' && (line[pos] < '0' || line[pos] > '9')) {
+            return; // header
+        }
+
+        boolean negative = line[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        int digitsStart = pos;
+        long timestamp = 0;
+        while (pos < end && line[pos] >= '0' && line[pos] <= '9') {
+            timestamp = timestamp * 10 + (line[pos++] - '0');
+        }
+        if (pos == digitsStart || pos - digitsStart > 18) {
+            throw new IOException("Line " + lineNumber + ": invalid timestamp");
+        }
+        while (pos < end && line[pos] == ' ') {
+            pos++;
+        }
+        if (pos == end || line[pos] != ',') {
+            throw new IOException("Line " + lineNumber + ": expected \"timestamp,emotion\"");
+        }
+        pos++;
+        while (pos < end && line[pos] == ' ') {
+            pos++;
+        }
+
+        int ordinal = matchEmotion(line, pos, end);
+        if (ordinal < 0) {
+            throw new IOException("Line " + lineNumber + ": unknown emotion");
+        }
+        if (!add(0, negative ? -timestamp : timestamp, ordinal)) {
+            throw new IOException("Line " + lineNumber + ": timestamp out of range");
+        }
+    }
+
+    /**
+     * @return Ordinal of the emotion named by line[from, to), ignoring case, or -1
+     */
+    private int matchEmotion(byte[] line, int from, int to) {
+        for (int ordinal = 0; ordinal < emotionNames.length; ordinal++) {
+            byte[] name = emotionNames[ordinal];
+            if (name.length != to - from) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length && (line[from + i] & 0xDF) == name[i]) {
+                i++;
+            }
+            if (i == name.length) {
+                return ordinal;
+            }
+        }
+        return -1;
+    }
+
+    private void readBinary(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != EmotionLogFormat.BINARY_MAGIC) {
+            throw new IOException("Not an emotion log export");
+        }
+        int version = data.readInt();
+        if (version != EmotionLogFormat.BINARY_VERSION) {
+            throw new IOException("Unsupported export version " + version);
+        }
+
+        int recordSize = EmotionLogFormat.BINARY_RECORD_SIZE;
+        byte[] chunk = new byte[recordSize * BATCH_SIZE];
+        ByteBuffer records = ByteBuffer.wrap(chunk);
+        int filled = 0;
+        int n;
+        while ((n = data.read(chunk, filled, chunk.length - filled)) > 0) {
+            filled += n;
+            int whole = filled / recordSize * recordSize;
+            for (int offset = 0; offset < whole; offset += recordSize) {
+                int ordinal = chunk[offset + 8];
+                if (ordinal < 0 || ordinal >= emotionValues.length) {
+                    throw new IOException("Record " + (size + 1) + ": unknown emotion");
+                }
+                if (!add(0, records.getLong(offset), ordinal)) {
+                    throw new IOException("Record " + (size + 1) + ": timestamp out of range");
+                }
+            }
+            // Keep a record split across reads for the next round
+            System.arraycopy(chunk, whole, chunk, 0, filled - whole);
+            filled -= whole;
+        }
+        if (filled != 0) {
+            throw new IOException("Export ends in the middle of a record");
+        }
+    }
+
+    /**
+     * Append one record
+     *
+     * @return false if the timestamp is out of range and the record was rejected
+     */
+    private boolean add(long id, long timestamp, int ordinal) {
+        if (!EpochDays.isSupported(timestamp)) {
+            return false;
+        }
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            emotions = Arrays.copyOf(emotions, capacity);
+        }
+        ids[size] = id;
+        timestamps[size] = timestamp;
+        emotions[size] = (byte) ordinal;
+        size++;
+        if (listener != null && size % BATCH_SIZE == 0) {
+            listener.onImportProgress(size);
+        }
+        return true;
+    }
+
+    private boolean isSorted() {
+        for (int i = 1; i < size; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stable merge sort of rows [from, to) by timestamp, moving all columns
+     * together; the buffers hold at least to - from rows
+     */
+    private void sort(int from, int to, long[] idBuffer, long[] timeBuffer, byte[] emotionBuffer) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(from, mid, idBuffer, timeBuffer, emotionBuffer);
+        sort(mid, to, idBuffer, timeBuffer, emotionBuffer);
+        if (timestamps[mid - 1] <= timestamps[mid]) {
+            return; // halves already in order
+        }
+
+        int left = from;
+        int right = mid;
+        int out = 0;
+        while (left < mid && right < to) {
+            int row = timestamps[right] < timestamps[left] ? right++ : left++;
+            idBuffer[out] = ids[row];
+            timeBuffer[out] = timestamps[row];
+            emotionBuffer[out] = emotions[row];
+            out++;
+        }
+        while (left < mid) {
+            idBuffer[out] = ids[left];
+            timeBuffer[out] = timestamps[left];
+            emotionBuffer[out] = emotions[left];
+            out++;
+            left++;
+        }
+        // Anything left on the right is already in place
+        System.arraycopy(idBuffer, 0, ids, from, out);
+        System.arraycopy(timeBuffer, 0, timestamps, from, out);
+        System.arraycopy(emotionBuffer, 0, emotions, from, out);
+    }
+}
@@ -0,0 +1,679 @@
+package com.example.emotilog;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * EmotionLogJournal is an append-only write-ahead log of every change made
+ * to the emotion history since the last snapshot.
+ * Design Rationale:
+ * - Fixed-width 24 byte records (id, timestamp, operation, emotion ordinal,
+ *   CRC32 checksum) are far smaller and faster than Java serialization
+ * - Deletes name the log by id, so replay removes exactly the log that was
+ *   deleted even when others share its timestamp and emotion
+ * - The caller only encodes a record into an in-memory buffer, so logging a
+ *   tap never waits on disk I/O
+ * - A single background writer drains everything queued since its last run
+ *   in one write and one fsync (group commit)
+ * - Recovery stops at the first torn or corrupt record and truncates the
+ *   file there, so a crash mid-write loses at most the unflushed tail
+ * - Once enough records pile up the history is checkpointed into an
+ *   EmotionLogSnapshot and the journal starts over, which keeps replay short
+ * - The history for a checkpoint can be captured on the writer thread
+ *   (requestCheckpoint), so the thread whose append crossed the threshold
+ *   does not copy the columns
+ * - A header record carries the journal's generation; a journal older than
+ *   the snapshot was already folded into it up to the checkpoint's marker
+ *   record, and only the records after the marker are replayed
+ * - A checkpoint drops nothing until its snapshot is fsynced and renamed;
+ *   if the snapshot fails the journal carries on in its old generation and
+ *   the snapshot is retried with backoff
+ * - A batch that fails to write is put back ahead of newer records and
+ *   retried with backoff; writes that keep failing are reported to a
+ *   FailureListener, so memory and disk never silently diverge
+ * - The journal is restarted the way the snapshot is written: a new file
+ *   renamed over the old one, never a truncate that a crash could interrupt
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.6
+ */
+class EmotionLogJournal {
+    private static final String TAG = "EmotionLogJournal";
+
+    static final int RECORD_SIZE = 24;
+    private static final byte OP_ADD = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_GENERATION = 3;
+    private static final byte OP_CHECKPOINT = 4;
+    private static final byte OP_CLEAR = 5;
+
+    private static final int PAYLOAD_SIZE = 20;
+    private static final int CHECKPOINT_THRESHOLD = 10000;
+    private static final long RETRY_DELAY_MS = 5000;
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60 * 1000;
+    // Consecutive failed writes before the failure is reported
+    private static final int REPORT_AFTER_FAILURES = 3;
+
+    /**
+     * Receives the records of a journal during replay, in file order
+     */
+    interface Replayer {
+        void onAdd(long id, long timestamp, Emotion emotion);
+
+        void onDelete(long id);
+
+        void onClear();
+    }
+
+    /**
+     * Told when writes keep failing and when they succeed again
+     * Called on the writer thread; queued changes are kept and retried meanwhile
+     */
+    interface FailureListener {
+        void onWriteFailed(IOException error);
+
+        void onWriteRecovered();
+    }
+
+    private final File file;
+    private final File snapshotFile;
+    private final ScheduledExecutorService writer;
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel; // replaced when the journal is restarted
+    private volatile FailureListener failureListener;
+
+    // Writer thread only, after recover()
+    private long committedSize; // journal length after the last fsync
+    private boolean rewind;     // a failed batch may have left a partial write
+    private int writeFailures;  // consecutive failed attempts
+
+    // Records validated by recover(), held until replay()
+    private ByteBuffer recovered;
+    private int recoveredNetAdds;
+    private boolean recoveredClear;
+
+    // Guarded by this: state shared with the writer thread
+    private ByteBuffer pending = ByteBuffer.allocate(RECORD_SIZE * 256);
+    private ByteBuffer writing = ByteBuffer.allocate(RECORD_SIZE * 256);
+    private boolean flushScheduled;
+    private boolean retryScheduled;
+    private long generation; // highest generation handed out so far
+    private int recordCount;
+    private Checkpoint checkpoint;
+    private boolean checkpointRequested; // a capture is queued on the writer thread
+    private int checkpointMark; // end of the checkpoint's marker within pending
+
+    /**
+     * History captured for the next snapshot, and the journal records that
+     * follow it; written on the writer thread
+     */
+    private static class Checkpoint {
+        final long generation;
+        final long[] ids;
+        final long[] timestamps;
+        final byte[] emotions;
+        final int count;
+        final int coveredRecords; // journal records up to and including the marker
+
+        ByteBuffer tail = ByteBuffer.allocate(RECORD_SIZE * 256);
+        int attempts;
+        long retryAt;
+
+        Checkpoint(long generation, long[] ids, long[] timestamps, byte[] emotions, int count,
+                   int coveredRecords) {
+            this.generation = generation;
+            this.ids = ids;
+            this.timestamps = timestamps;
+            this.emotions = emotions;
+            this.count = count;
+            this.coveredRecords = coveredRecords;
+        }
+
+        /**
+         * Keep the records of a batch from offset on; they start the next journal
+         */
+        void keep(ByteBuffer batch, int offset) {
+            int length = batch.position() - offset;
+            if (tail.remaining() < length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(tail.capacity() * 2,
+                        tail.position() + length));
+                tail.flip();
+                grown.put(tail);
+                tail = grown;
+            }
+            tail.put(batch.array(), offset, length);
+        }
+    }
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final Runnable retryTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (EmotionLogJournal.this) {
+                retryScheduled = false;
+            }
+            flush();
+        }
+    };
+
+    /**
+     * Open (or create) a journal file
+     *
+     * @param file Journal location
+     * @param snapshotFile Where checkpoints are written
+     * @throws IOException If the file cannot be opened
+     */
+    EmotionLogJournal(File file, File snapshotFile) throws IOException {
+        this.file = file;
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        this.snapshotFile = snapshotFile;
+        writer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * @param listener Told when writes keep failing and when they recover, or null
+     */
+    void setFailureListener(FailureListener listener) {
+        failureListener = listener;
+    }
+
+    /**
+     * Validate the journal and position it for appending
+     * Must be called once, before the first append. Only reads the journal,
+     * which checkpoints keep small; records are applied later by replay()
+     *
+     * @param snapshotGeneration Generation of the loaded snapshot, 0 if none
+     * @throws IOException If the file cannot be read
+     */
+    synchronized void recover(long snapshotGeneration) throws IOException {
+        long size = channel.size();
+        ByteBuffer records = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        channel.position(0);
+        while (records.hasRemaining() && channel.read(records) > 0) {
+            // keep reading
+        }
+        records.flip();
+
+        byte[] bytes = records.array();
+        int validEnd = 0;
+        int markerEnd = -1;
+        long journalGeneration = 0;
+        long highestGeneration = snapshotGeneration;
+        int emotions = Emotion.values().length;
+
+        while (records.remaining() >= RECORD_SIZE) {
+            int start = records.position();
+            long id = records.getLong();
+            records.getLong(); // timestamp
+            byte op = records.get();
+            int ordinal = records.get();
+            records.getShort(); // reserved
+            int checksum = records.getInt();
+
+            if (checksum != checksum(bytes, start) || ordinal < 0 || ordinal >= emotions) {
+                Log.w(TAG, "Corrupt journal record at offset " + start);
+                break;
+            }
+            // Generations are carried in the id field
+            if (op == OP_GENERATION) {
+                journalGeneration = id;
+                highestGeneration = Math.max(highestGeneration, id);
+            } else if (op == OP_CHECKPOINT) {
+                if (id == snapshotGeneration) {
+                    markerEnd = records.position();
+                }
+                highestGeneration = Math.max(highestGeneration, id);
+            }
+            validEnd = records.position();
+        }
+
+        // A journal older than the snapshot was folded into it up to the
+        // snapshot's marker; only what follows the marker is still needed
+        int replayStart = 0;
+        boolean stale = journalGeneration < snapshotGeneration;
+        if (stale) {
+            replayStart = markerEnd >= 0 ? markerEnd : validEnd;
+        }
+
+        int netAdds = 0;
+        boolean cleared = false;
+        for (int offset = replayStart; offset < validEnd; offset += RECORD_SIZE) {
+            byte op = bytes[offset + 16];
+            if (op == OP_ADD) {
+                netAdds++;
+            } else if (op == OP_DELETE) {
+                netAdds--;
+            } else if (op == OP_CLEAR) {
+                netAdds = 0;
+                cleared = true;
+            }
+        }
+
+        generation = highestGeneration;
+        records.position(replayStart).limit(validEnd);
+        recovered = records;
+        recoveredNetAdds = netAdds;
+        recoveredClear = cleared;
+
+        if (stale) {
+            // Restart the journal in the snapshot's generation
+            ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+            encodeRecord(header, OP_GENERATION, snapshotGeneration, 0, 0);
+            header.flip();
+            try {
+                restartJournal(header, records.duplicate());
+                recordCount = 1 + (validEnd - replayStart) / RECORD_SIZE;
+                return;
+            } catch (IOException e) {
+                // The marker still tells the next recovery where to resume
+                Log.e(TAG, "Failed to restart journal", e);
+            }
+        }
+
+        recordCount = validEnd / RECORD_SIZE;
+        committedSize = validEnd;
+        // Drop a torn tail so new records follow the last good one
+        if (size > validEnd) {
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        if (validEnd == 0) {
+            appendRecord(OP_GENERATION, generation, 0, 0);
+            recordCount++;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * @return Adds minus deletes among the recovered records, counted from
+     * the last clear if there is one
+     */
+    int getRecoveredNetAdds() {
+        return recoveredNetAdds;
+    }
+
+    /**
+     * @return true if the recovered records clear the history, so the
+     * snapshot's logs do not count
+     */
+    boolean isRecoveredClear() {
+        return recoveredClear;
+    }
+
+    /**
+     * Apply the records found by recover() and release them
+     *
+     * @param replayer Receives each recovered record
+     */
+    void replay(Replayer replayer) {
+        ByteBuffer records;
+        synchronized (this) {
+            records = recovered;
+            recovered = null;
+        }
+        if (records == null) {
+            return;
+        }
+        Emotion[] emotions = Emotion.values();
+        while (records.remaining() >= RECORD_SIZE) {
+            long id = records.getLong();
+            long timestamp = records.getLong();
+            byte op = records.get();
+            int ordinal = records.get();
+            records.position(records.position() + 6); // reserved, checksum
+
+            if (op == OP_ADD) {
+                replayer.onAdd(id, timestamp, emotions[ordinal]);
+            } else if (op == OP_DELETE) {
+                replayer.onDelete(id);
+            } else if (op == OP_CLEAR) {
+                replayer.onClear();
+            }
+        }
+    }
+
+    /**
+     * Queue an add for the next group commit
+     * Only encodes into memory; the write happens on the writer thread
+     *
+     * @param id Id of the new log
+     * @param timestamp Timestamp of the new log
+     * @param emotion Emotion of the new log
+     */
+    synchronized void appendAdd(long id, long timestamp, Emotion emotion) {
+        appendRecord(OP_ADD, id, timestamp, emotion.ordinal());
+        recordCount++;
+        scheduleFlush();
+    }
+
+    /**
+     * Queue a delete for the next group commit
+     *
+     * @param id Id of the deleted log
+     * @param timestamp Timestamp of the deleted log, kept for diagnostics
+     */
+    synchronized void appendDelete(long id, long timestamp) {
+        appendRecord(OP_DELETE, id, timestamp, 0);
+        recordCount++;
+        scheduleFlush();
+    }
+
+    /**
+     * Queue the removal of every log
+     * Replay honours it even if the empty snapshot that follows is never written
+     */
+    synchronized void appendClear() {
+        appendRecord(OP_CLEAR, 0, 0, 0);
+        recordCount++;
+        scheduleFlush();
+    }
+
+    /**
+     * @return true once the journal is long enough to be worth a checkpoint
+     * and none is already requested or waiting to be written
+     */
+    synchronized boolean shouldCheckpoint() {
+        return recordCount >= CHECKPOINT_THRESHOLD && checkpoint == null && !checkpointRequested;
+    }
+
+    /**
+     * Run a capture of the history on the writer thread
+     * The capture copies the columns under a lock that keeps appends out
+     * and passes them to checkpoint(), so the thread that asked never pays
+     * for the copy
+     *
+     * @param capture Copies the history and calls checkpoint()
+     */
+    synchronized void requestCheckpoint(Runnable capture) {
+        if (!checkpointRequested) {
+            checkpointRequested = true;
+            writer.execute(capture);
+        }
+    }
+
+    /**
+     * @return true while a requested capture has not reached checkpoint();
+     * false once a checkpoint() call from anywhere has made it unnecessary
+     */
+    synchronized boolean isCheckpointRequested() {
+        return checkpointRequested;
+    }
+
+    /**
+     * Replace the snapshot with the given history and restart the journal
+     * The columns must reflect every record appended so far; they are
+     * written on the writer thread, so the caller must not modify them.
+     * Nothing already journaled is dropped until the snapshot is on disk;
+     * a failed snapshot is retried later while the journal carries on
+     *
+     * @param ids Id column
+     * @param timestamps Timestamp column, ascending
+     * @param emotions Emotion ordinal column
+     * @param count Number of rows
+     */
+    synchronized void checkpoint(long[] ids, long[] timestamps, byte[] emotions, int count) {
+        checkpointRequested = false;
+        generation++;
+        // The marker shows recovery where this snapshot ends in the journal;
+        // a newer capture replaces one still waiting to be written
+        appendRecord(OP_CHECKPOINT, generation, 0, 0);
+        recordCount++;
+        checkpoint = new Checkpoint(generation, ids, timestamps, emotions, count, recordCount);
+        checkpointMark = pending.position();
+        scheduleFlush();
+    }
+
+    private void appendRecord(byte op, long id, long timestamp, int ordinal) {
+        if (pending.remaining() < RECORD_SIZE) {
+            ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        encodeRecord(pending, op, id, timestamp, ordinal);
+    }
+
+    /**
+     * Encode one record at the buffer's position
+     * Callers hold the journal lock
+     */
+    private void encodeRecord(ByteBuffer buffer, byte op, long id, long timestamp, int ordinal) {
+        int start = buffer.position();
+        buffer.putLong(id)
+                .putLong(timestamp)
+                .put(op)
+                .put((byte) ordinal)
+                .putShort((short) 0);
+        buffer.putInt(checksum(buffer.array(), start));
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            writer.execute(flushTask);
+        }
+    }
+
+    private void scheduleRetry(long delayMs) {
+        if (!retryScheduled) {
+            retryScheduled = true;
+            writer.schedule(retryTask, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write everything queued so far in one batch, then fsync once, then
+     * write a pending checkpoint
+     * A batch that fails is put back ahead of newer records and retried
+     * Runs on the writer thread only
+     */
+    private void flush() {
+        ByteBuffer batch;
+        Checkpoint snapshot;
+        int mark;
+        int tailBefore = 0;
+        synchronized (this) {
+            batch = pending;
+            pending = writing;
+            writing = batch;
+            flushScheduled = false;
+            snapshot = checkpoint;
+            mark = checkpointMark;
+            if (snapshot != null) {
+                // Records after the marker are not in the snapshot
+                tailBefore = snapshot.tail.position();
+                snapshot.keep(batch, mark);
+                checkpointMark = 0;
+            }
+        }
+
+        IOException error = null;
+        batch.flip();
+        try {
+            if (rewind) {
+                // Drop whatever part of a failed batch reached the file
+                channel.truncate(committedSize);
+                channel.position(committedSize);
+                rewind = false;
+            }
+            // The marker is on disk before the snapshot it refers to
+            writeFully(channel, batch);
+            channel.force(false);
+            committedSize = channel.position();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write journal; batch kept for retry", e);
+            error = e;
+            rewind = true;
+            requeue(batch, snapshot, mark, tailBefore);
+        } finally {
+            batch.clear();
+        }
+
+        if (error == null && snapshot != null) {
+            if (System.currentTimeMillis() < snapshot.retryAt) {
+                return; // still backing off; health unchanged
+            }
+            error = writeCheckpoint(snapshot);
+        }
+        reportWrite(error);
+    }
+
+    /**
+     * Put a failed batch back in front of the records queued since, and
+     * schedule a retry
+     */
+    private synchronized void requeue(ByteBuffer batch, Checkpoint snapshot, int mark,
+                                      int tailBefore) {
+        int length = batch.limit();
+        ByteBuffer merged = ByteBuffer.allocate(
+                Math.max(pending.capacity(), length + pending.position() + RECORD_SIZE));
+        merged.put(batch.array(), 0, length);
+        pending.flip();
+        merged.put(pending);
+        pending = merged;
+
+        if (checkpoint != null) {
+            if (checkpoint == snapshot) {
+                // The batch will be kept again when it is retried
+                snapshot.tail.position(tailBefore);
+                checkpointMark = mark;
+            } else {
+                // A newer capture already covers the whole batch
+                checkpointMark += length;
+            }
+        }
+        scheduleRetry(retryDelay(writeFailures));
+    }
+
+    /**
+     * Write a snapshot, then restart the journal with the records that follow it
+     * Runs on the writer thread only
+     *
+     * @return Why the snapshot could not be written, or null once it is on disk
+     */
+    private IOException writeCheckpoint(Checkpoint snapshot) {
+        IOException error = null;
+        boolean saved = false;
+        try {
+            EmotionLogSnapshot.write(snapshotFile, snapshot.generation,
+                    snapshot.ids, snapshot.timestamps, snapshot.emotions, snapshot.count);
+            saved = true;
+
+            // Until the restart, recovery resumes after the marker
+            ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+            synchronized (this) {
+                encodeRecord(header, OP_GENERATION, snapshot.generation, 0, 0);
+            }
+            header.flip();
+            ByteBuffer tail = snapshot.tail.duplicate();
+            tail.flip();
+            restartJournal(header, tail);
+        } catch (IOException e) {
+            if (saved) {
+                Log.e(TAG, "Failed to restart journal after checkpoint", e);
+            } else {
+                Log.e(TAG, "Failed to write checkpoint; keeping the journal", e);
+                error = e;
+            }
+        }
+
+        synchronized (this) {
+            if (saved) {
+                if (checkpoint == snapshot) {
+                    checkpoint = null;
+                }
+                // Counted from the marker even if the old file is still in use
+                recordCount = recordCount - snapshot.coveredRecords + 1;
+            } else if (checkpoint == snapshot) {
+                // Same history, tried again later; the journal keeps growing meanwhile
+                long delay = retryDelay(snapshot.attempts++);
+                snapshot.retryAt = System.currentTimeMillis() + delay;
+                scheduleRetry(delay);
+            }
+        }
+        return error;
+    }
+
+    private static long retryDelay(int attempts) {
+        return Math.min(RETRY_DELAY_MS << Math.min(attempts, 16), MAX_RETRY_DELAY_MS);
+    }
+
+    /**
+     * Count consecutive failed writes and tell the listener once they persist,
+     * and again once a write gets through
+     * Runs on the writer thread only
+     *
+     * @param error Failure of the last attempt, or null if it succeeded
+     */
+    private void reportWrite(IOException error) {
+        FailureListener listener = failureListener;
+        if (error == null) {
+            boolean wasReported = writeFailures >= REPORT_AFTER_FAILURES;
+            writeFailures = 0;
+            if (wasReported && listener != null) {
+                listener.onWriteRecovered();
+            }
+        } else {
+            writeFailures++;
+            if (writeFailures == REPORT_AFTER_FAILURES && listener != null) {
+                listener.onWriteFailed(error);
+            }
+        }
+    }
+
+    /**
+     * Replace the journal file with a header and the given records
+     * Written beside the journal and renamed over it, so a crash leaves
+     * either the old journal or the new one
+     */
+    private void restartJournal(ByteBuffer header, ByteBuffer records) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileChannel fresh = new RandomAccessFile(temp, "rw").getChannel();
+        try {
+            fresh.truncate(0);
+            writeFully(fresh, header);
+            writeFully(fresh, records);
+            fresh.force(false);
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not replace " + file);
+            }
+        } catch (IOException e) {
+            fresh.close();
+            throw e;
+        }
+        channel.close();
+        channel = fresh;
+        committedSize = fresh.position();
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * CRC32 over the payload of the record starting at offset
+     * Callers hold the journal lock
+     */
+    private int checksum(byte[] bytes, int offset) {
+        crc.reset();
+        crc.update(bytes, offset, PAYLOAD_SIZE);
+        return (int) crc.getValue();
+    }
+}
@@ -1,40 +1,435 @@
 package com.example.emotilog;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
 
-import java.text.SimpleDateFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * EmotionLogManager is a singleton class that manages all emotion logs.
  * Design Rationale:
  * - Singleton pattern ensures single source of truth for all emotion logs
  * - Provides centralized data management and business logic
- * - Session-only memory - data resets when app is closed
+ * - Every change is appended to an on-disk journal and periodically folded
+ *   into a columnar snapshot, so logs survive the app being closed
+ * - The history is loaded in the background, journal recovery included;
+ *   only the total count is needed to show the main screen, and it comes
+ *   from the snapshot header
  * - Separates data management from UI concerns (separation of concerns)
+ * - Safe to call from any thread: a read-write lock lets screens read in
+ *   parallel while imports or widgets write, and each add, delete or clear
+ *   is applied to the store and the journal as one atomic step; addLogs()
+ *   applies a whole batch that way with a single change event
+ * - Owns the LogWriteQueue that batches taps, so the queue and its writer
+ *   thread outlive the screens that feed it
+ * - Bulk imports are parsed on a background thread, then sorted and merged
+ *   into the store in one pass and checkpointed straight into a snapshot,
+ *   rather than being added and journaled one log at a time; the columns
+ *   for a snapshot are copied on the journal's writer thread under the read
+ *   lock, never by the thread that triggered it
+ * - Range statistics (weeks, months, rolling windows), trends, streaks,
+ *   hour-of-day histograms and day-of-week heat maps come from aggregates
+ *   maintained on every change,
+ *   never from scanning logs when a screen opens
+ * - Exports stream from the store's columns through a fixed-size buffer, so
+ *   shipping the whole history costs constant memory
+ * - Publishes an EmotionLogChange after every write (observer pattern) with a
+ *   monotonic version, so screens refresh only when what they show changed
+ * - Ranked day summaries are kept in a small LRU cache; every change drops
+ *   exactly the days it touched, so flipping between dates reuses them
+ * - Day sections of the log list are indexed once per change, so screens
+ *   can group rows by day and jump between days without scanning logs
+ * - Writes that keep failing are reported through OnStorageStateListener
+ *   and getStorageError(), while the journal holds and retries them
+ * - Day keys follow the device time zone: on a time zone or locale change
+ *   every day-keyed aggregate is rebuilt in the background under the write
+ *   lock and published as a LOADED change, so screens regroup their days
  *
  * @author Muhammad Bin Tariq
- * @version 0.2
+ * @version 0.9
  */
 public class EmotionLogManager {
+
+    /**
+     * Listener notified after the emotion history changes
+     * Called on the thread that made the change, after the change is visible
+     * to readers; post to the main thread before touching views
+     */
+    public interface OnLogsChangedListener {
+        void onLogsChanged(EmotionLogChange change);
+    }
+
+    /**
+     * Listener for the progress of a bulk import
+     * Called on the import thread; post to the main thread before touching views
+     */
+    public interface ImportListener {
+        /**
+         * @param recordsRead Records parsed so far
+         */
+        void onImportProgress(int recordsRead);
+
+        /**
+         * @param imported Logs added to the history
+         */
+        void onImportComplete(int imported);
+
+        /**
+         * @param error Why the import stopped; nothing was added
+         */
+        void onImportFailed(IOException error);
+    }
+
+    /**
+     * Listener told when changes stop reaching storage and when they reach it again
+     * Called on a background thread; post to the main thread before touching views
+     */
+    public interface OnStorageStateListener {
+        /**
+         * @param error Latest failure; changes stay in memory and are retried
+         */
+        void onStorageFailed(IOException error);
+
+        void onStorageRecovered();
+    }
+
+    private static final String TAG = "EmotionLogManager";
+    private static final String JOURNAL_FILE = "emotion_logs.journal";
+    private static final String SNAPSHOT_FILE = "emotion_logs.snapshot";
+
     private static EmotionLogManager instance;
-    private List<EmotionLog> emotionLogs;
+    private EmotionLogStore emotionLogs;
+    // Opened by the loader thread before loaded is released; null if storage is unavailable
+    private EmotionLogJournal journal;
+    // Runs imports and time zone rebuilds one at a time, off the caller's thread
+    private final ExecutorService importer = Executors.newSingleThreadExecutor();
+    // Batches taps into addLogs(); created on first use
+    private LogWriteQueue writeQueue;
+
+    // Guards emotionLogs; writers also hold it while appending to the journal
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<OnLogsChangedListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<OnStorageStateListener> storageListeners = new CopyOnWriteArrayList<>();
+    // Why changes are not reaching storage, or null while they are
+    private volatile IOException storageError;
+    // Ranked summaries of recently viewed days; invalidated by recordChange
+    private final DaySummaryCache summaryCache = new DaySummaryCache(DaySummaryCache.DEFAULT_CAPACITY);
+    // Day sections of the log list, replaced on first use after a change
+    private volatile LogSectionIndex sectionIndex;
+    // Bumped under the write lock on every change
+    private volatile long version;
+
+    // Released once the snapshot and journal have been loaded into the store
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    // Log count known before loading ends: the snapshot header's, corrected
+    // by the journal once it has been recovered
+    private volatile int startupCount;
 
     /**
      * Private constructor to prevent direct instantiation
-     * Initializes empty list for session-only storage
+     * Only maps the snapshot; the journal is recovered and both are loaded
+     * into the time-ordered store on a background thread, so startup does
+     * not depend on the size of the history or of the journal
      *
-     * @param context Application context (not used but kept for consistency)
+     * @param context Application context, used to locate the history files
      */
     private EmotionLogManager(Context context) {
-        emotionLogs = new ArrayList<>();
+        emotionLogs = new EmotionLogStore();
+        final File dir = context.getFilesDir();
+
+        EmotionLogSnapshot snapshot = null;
+        try {
+            snapshot = EmotionLogSnapshot.open(new File(dir, SNAPSHOT_FILE));
+        } catch (IOException e) {
+            Log.e(TAG, "Emotion history snapshot could not be read", e);
+        }
+        startupCount = snapshot == null ? 0 : snapshot.size();
+
+        final EmotionLogSnapshot base = snapshot;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                load(dir, base);
+            }
+        }, "EmotionLogLoader").start();
+
+        IntentFilter zoneChanges = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        zoneChanges.addAction(Intent.ACTION_LOCALE_CHANGED);
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                importer.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onZoneChanged();
+                    }
+                });
+            }
+        }, zoneChanges);
+    }
+
+    /**
+     * Re-key the history after the device time zone or locale changed
+     * Day keys, the heat map, cached summaries and day sections all depend
+     * on them, so they are rebuilt together under the write lock
+     */
+    void onZoneChanged() {
+        EmotionLogChange change;
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            if (!EpochDays.refresh()) {
+                return;
+            }
+            emotionLogs.rebuildDays();
+            change = recordChange(EmotionLogChange.Type.LOADED);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyListeners(change);
+    }
+
+    /**
+     * Open and recover the journal, load the snapshot columns, then replay
+     * the journal on top of them
+     * Runs on the loader thread, since reading the journal takes time in
+     * proportion to its length
+     *
+     * @param dir Directory holding the history files
+     * @param snapshot Mapped snapshot, or null if there is none
+     */
+    private void load(File dir, EmotionLogSnapshot snapshot) {
+        EmotionLogChange change;
+        lock.writeLock().lock();
+        try {
+            openJournal(dir, snapshot);
+            if (snapshot != null) {
+                emotionLogs.load(snapshot);
+            }
+            if (journal != null) {
+                journal.replay(new EmotionLogJournal.Replayer() {
+                    @Override
+                    public void onAdd(long id, long timestamp, Emotion emotion) {
+                        emotionLogs.insert(id, timestamp, emotion);
+                        LogIdGenerator.observe(id);
+                    }
+
+                    @Override
+                    public void onDelete(long id) {
+                        emotionLogs.remove(id);
+                    }
+
+                    @Override
+                    public void onClear() {
+                        emotionLogs.clear();
+                    }
+                });
+                checkpointIfNeeded();
+            }
+        } finally {
+            change = recordChange(EmotionLogChange.Type.LOADED);
+            lock.writeLock().unlock();
+            loaded.countDown();
+        }
+        notifyListeners(change);
+    }
+
+    /**
+     * Open the journal and check what it adds to the snapshot
+     * Leaves journal null and reports a storage error if it cannot be read
+     *
+     * @param dir Directory holding the history files
+     * @param snapshot Mapped snapshot, or null if there is none
+     */
+    private void openJournal(File dir, EmotionLogSnapshot snapshot) {
+        EmotionLogJournal opened;
+        try {
+            opened = new EmotionLogJournal(new File(dir, JOURNAL_FILE), new File(dir, SNAPSHOT_FILE));
+            opened.recover(snapshot == null ? 0 : snapshot.getGeneration());
+        } catch (IOException e) {
+            // Keep working from memory for this session
+            Log.e(TAG, "Emotion history journal could not be opened", e);
+            storageError = e;
+            for (OnStorageStateListener listener : storageListeners) {
+                listener.onStorageFailed(e);
+            }
+            return;
+        }
+        opened.setFailureListener(new EmotionLogJournal.FailureListener() {
+            @Override
+            public void onWriteFailed(IOException error) {
+                storageError = error;
+                for (OnStorageStateListener listener : storageListeners) {
+                    listener.onStorageFailed(error);
+                }
+            }
+
+            @Override
+            public void onWriteRecovered() {
+                storageError = null;
+                for (OnStorageStateListener listener : storageListeners) {
+                    listener.onStorageRecovered();
+                }
+            }
+        });
+
+        boolean cleared = opened.isRecoveredClear();
+        startupCount = (snapshot == null || cleared ? 0 : snapshot.size())
+                + opened.getRecoveredNetAdds();
+        journal = opened;
+    }
+
+    /**
+     * Block until the history has been loaded
+     * Returns immediately after startup
+     */
+    private void awaitLoaded() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                loaded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fold the journal into a new snapshot once it has grown long enough
+     * Callers hold the write lock
+     */
+    private void checkpointIfNeeded() {
+        if (journal != null && journal.shouldCheckpoint()) {
+            journal.requestCheckpoint(captureCheckpoint);
+        }
+    }
+
+    // Copies the history for a checkpoint on the journal's writer thread.
+    // Every append happens under the write lock, so under the read lock the
+    // copied columns match the journal exactly; readers carry on meanwhile
+    private final Runnable captureCheckpoint = new Runnable() {
+        @Override
+        public void run() {
+            lock.readLock().lock();
+            try {
+                if (journal.isCheckpointRequested()) {
+                    journal.checkpoint(emotionLogs.copyIds(), emotionLogs.copyTimestamps(),
+                            emotionLogs.copyEmotions(), emotionLogs.size());
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    };
+
+    /**
+     * Advance the version and describe the change just made
+     * Also drops the cached summaries of the changed days
+     * Callers hold the write lock
+     *
+     * @param type Kind of change
+     * @param epochDays Days whose logs changed
+     * @return Change to publish once the lock is released
+     */
+    private EmotionLogChange recordChange(EmotionLogChange.Type type, int... epochDays) {
+        version++;
+        if (type == EmotionLogChange.Type.CLEARED || type == EmotionLogChange.Type.LOADED) {
+            summaryCache.invalidateAll();
+        } else {
+            for (int day : epochDays) {
+                summaryCache.invalidate(day);
+            }
+        }
+        return new EmotionLogChange(type, epochDays, version, emotionLogs.size());
+    }
+
+    private void notifyListeners(EmotionLogChange change) {
+        for (OnLogsChangedListener listener : listeners) {
+            listener.onLogsChanged(change);
+        }
+    }
+
+    /**
+     * Start receiving a callback after every change
+     *
+     * @param listener Listener to add
+     */
+    public void addOnLogsChangedListener(OnLogsChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop receiving change callbacks
+     *
+     * @param listener Listener to remove
+     */
+    public void removeOnLogsChangedListener(OnLogsChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start hearing when changes stop reaching storage, and when they recover
+     *
+     * @param listener Listener to add
+     */
+    public void addOnStorageStateListener(OnStorageStateListener listener) {
+        storageListeners.add(listener);
+    }
+
+    /**
+     * Stop hearing about storage failures
+     *
+     * @param listener Listener to remove
+     */
+    public void removeOnStorageStateListener(OnStorageStateListener listener) {
+        storageListeners.remove(listener);
+    }
+
+    /**
+     * Why recent changes are not yet on disk
+     * Writes are retried in the background; changes stay in memory meanwhile
+     *
+     * @return The failure that keeps repeating, or null if storage is keeping up
+     */
+    public IOException getStorageError() {
+        return storageError;
+    }
+
+    /**
+     * Get the version of the history
+     * Grows by at least one on every change; equal versions mean equal data
+     *
+     * @return Current version
+     */
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -52,13 +447,79 @@ public class EmotionLogManager {
 
     /**
      * Add a new emotion log
-     * Session-only - data will be lost when app closes
+     * The log is journaled in the background; this call never waits on disk
+     * The store keeps logs ordered by timestamp (most recent first), so a log
+     * stamped "now" is appended without re-sorting the whole history
      *
      * @param emotionLog The emotion log to add
      */
     public void addLog(EmotionLog emotionLog) {
-        emotionLogs.add(emotionLog);
-        Collections.sort(emotionLogs); // Keep sorted by timestamp (most recent first)
+        long time = emotionLog.getTimestamp().getTime();
+        EmotionLogChange change;
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            emotionLogs.insert(emotionLog);
+            if (journal != null) {
+                journal.appendAdd(emotionLog.getId(), time, emotionLog.getEmotion());
+                checkpointIfNeeded();
+            }
+            change = recordChange(EmotionLogChange.Type.INSERTED, EpochDays.of(time));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyListeners(change);
+    }
+
+    /**
+     * Add several logs as one change
+     * Takes the write lock once, journals the logs in the given order and
+     * publishes a single change event, so a burst of taps costs one journal
+     * flush and one notification instead of one per log
+     *
+     * @param logs Logs to add, oldest first
+     */
+    public void addLogs(List<EmotionLog> logs) {
+        int count = logs.size();
+        if (count == 0) {
+            return;
+        }
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = logs.get(i).getTimestamp().getTime();
+        }
+
+        EmotionLogChange change;
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                EmotionLog log = logs.get(i);
+                emotionLogs.insert(log);
+                if (journal != null) {
+                    journal.appendAdd(log.getId(), times[i], log.getEmotion());
+                }
+            }
+            checkpointIfNeeded();
+            change = recordChange(EmotionLogChange.Type.INSERTED, distinctDays(times, count));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyListeners(change);
+    }
+
+    /**
+     * Get the queue that batches taps into addLogs()
+     * The same queue is returned for the life of the process; screens flush
+     * it when they pause and never release it
+     *
+     * @return The shared write queue
+     */
+    synchronized LogWriteQueue getWriteQueue() {
+        if (writeQueue == null) {
+            writeQueue = new LogWriteQueue(this);
+        }
+        return writeQueue;
     }
 
     /**
@@ -72,27 +533,231 @@ public class EmotionLogManager {
         addLog(log);
     }
 
-    public List<EmotionLog> getAllLogs() {
-        return new ArrayList<>(emotionLogs);
+    /**
+     * Import historical logs from a CSV or binary stream in the background
+     * Parsing happens off the caller's thread; the logs are then merged into
+     * the history in one pass and published as a single change. The stream
+     * is closed when the import ends
+     *
+     * @param in Stream of records, see {@link EmotionLogFormat}
+     * @param format Layout of the records
+     * @param listener Receives progress and the outcome, or null
+     */
+    public void importLogs(final InputStream in, final EmotionLogFormat format,
+                           final ImportListener listener) {
+        if (format == EmotionLogFormat.JSON_LINES) {
+            throw new IllegalArgumentException("JSON Lines can only be exported");
+        }
+        importer.execute(new Runnable() {
+            @Override
+            public void run() {
+                EmotionLogImporter batch = new EmotionLogImporter(listener);
+                try {
+                    try {
+                        batch.read(in, format);
+                    } finally {
+                        in.close();
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Import failed", e);
+                    if (listener != null) {
+                        listener.onImportFailed(e);
+                    }
+                    return;
+                }
+                finishImport(batch, listener);
+            }
+        });
     }
 
-    public List<EmotionLog> getLogsForDate(Date date) {
-        List<EmotionLog> dateLogs = new ArrayList<>();
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
+    /**
+     * Import logs that already exist as objects in the background
+     * Logs keep their ids; any already in the history are skipped
+     *
+     * @param logs Logs to import; consumed on the import thread
+     * @param listener Receives progress and the outcome, or null
+     */
+    public void importLogs(final Iterator<EmotionLog> logs, final ImportListener listener) {
+        importer.execute(new Runnable() {
+            @Override
+            public void run() {
+                EmotionLogImporter batch = new EmotionLogImporter(listener);
+                try {
+                    batch.readAll(logs);
+                } catch (IOException e) {
+                    Log.e(TAG, "Import failed", e);
+                    if (listener != null) {
+                        listener.onImportFailed(e);
+                    }
+                    return;
+                }
+                finishImport(batch, listener);
+            }
+        });
+    }
 
-        cal1.setTime(date);
+    /**
+     * Export logs, oldest first, on the calling thread
+     * Reads the store a chunk at a time, so memory use does not depend on
+     * the size of the history and writers are only paused between chunks
+     *
+     * @param out Destination; written to but not closed
+     * @param format Layout of the records
+     * @param from Any moment within the first day to export, or null for the oldest
+     * @param to Any moment within the last day to export, or null for the newest
+     * @return Number of logs exported
+     * @throws IOException If the destination cannot be written
+     */
+    public int exportLogs(WritableByteChannel out, EmotionLogFormat format, Date from, Date to)
+            throws IOException {
+        int fromDay = from == null ? Integer.MIN_VALUE : EpochDays.of(from.getTime());
+        int toDay = to == null ? Integer.MAX_VALUE : EpochDays.of(to.getTime());
+        awaitLoaded();
+        return new EmotionLogExporter(emotionLogs, lock.readLock()).export(out, format, fromDay, toDay);
+    }
 
-        for (EmotionLog log : emotionLogs) {
-            cal2.setTime(log.getTimestamp());
+    /**
+     * Export logs, oldest first, on the calling thread
+     *
+     * @param out Destination; written to but not closed
+     * @param format Layout of the records
+     * @param from Any moment within the first day to export, or null for the oldest
+     * @param to Any moment within the last day to export, or null for the newest
+     * @return Number of logs exported
+     * @throws IOException If the destination cannot be written
+     * @see #exportLogs(WritableByteChannel, EmotionLogFormat, Date, Date)
+     */
+    public int exportLogs(OutputStream out, EmotionLogFormat format, Date from, Date to)
+            throws IOException {
+        int exported = exportLogs(Channels.newChannel(out), format, from, to);
+        out.flush();
+        return exported;
+    }
 
-            if (cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-                    cal1.get(Calendar.DAY_OF_YEAR) == cal2.get(Calendar.DAY_OF_YEAR)) {
-                dateLogs.add(log);
+    /**
+     * Sort a parsed batch, merge it into the store and snapshot the result
+     * Runs on the import thread
+     */
+    private void finishImport(EmotionLogImporter batch, ImportListener listener) {
+        batch.prepare();
+        int added;
+        EmotionLogChange change = null;
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            added = emotionLogs.merge(batch.ids(), batch.timestamps(), batch.emotions(), batch.size());
+            if (added > 0) {
+                if (journal != null) {
+                    // One snapshot instead of one journal record per imported log
+                    journal.requestCheckpoint(captureCheckpoint);
+                }
+                change = recordChange(EmotionLogChange.Type.INSERTED,
+                        distinctDays(batch.timestamps(), added));
             }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (change != null) {
+            notifyListeners(change);
+        }
+        if (listener != null) {
+            listener.onImportComplete(added);
         }
+    }
 
-        return dateLogs;
+    /**
+     * Get a copy of all logs, most recent first
+     * Creates one EmotionLog per row; prefer getLogCursor() for large histories
+     *
+     * @return Newest-first list of every log
+     */
+    public List<EmotionLog> getAllLogs() {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get one page of logs, most recent first
+     * Only the requested rows are copied, whatever the size of the history;
+     * the page's day sections are read under the same lock as its rows
+     *
+     * @param offset Position of the first log, 0 for the most recent
+     * @param limit Maximum number of logs in the page
+     * @return Read-only page of logs
+     */
+    public EmotionLogPage getLogsPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return new EmotionLogPage(emotionLogs.getRange(offset, limit), offset,
+                    currentSectionIndex());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the logs of a range of days, most recent first
+     * Lets a screen re-read just the days a change touched; the rows and
+     * their day sections are read under one lock
+     *
+     * @param newestDay Day key of the newest day to read
+     * @param oldestDay Day key of the oldest day to read
+     * @param limit Maximum number of logs in the page
+     * @return Page starting where newestDay's logs start, or would start
+     */
+    public EmotionLogPage getDaysPage(int newestDay, int oldestDay, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            LogSectionIndex sections = currentSectionIndex();
+            int start = sections.getRowOfDay(newestDay);
+            int end = oldestDay == Integer.MIN_VALUE
+                    ? sections.getTotalCount() : sections.getRowOfDay(oldestDay - 1);
+            return new EmotionLogPage(emotionLogs.getRange(start, Math.min(limit, end - start)),
+                    start, sections);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get a cursor over all logs, most recent first
+     * Reads the store's columns directly, without copying or creating objects
+     *
+     * @return Cursor positioned before the first row
+     */
+    public EmotionLogCursor getLogCursor() {
+        awaitLoaded();
+        return new EmotionLogCursor(emotionLogs, lock.readLock());
+    }
+
+    /**
+     * Get all logs recorded on the same local day as the given date
+     * Looks the day up in the store's day index instead of scanning all logs
+     *
+     * @param date Any moment within the day of interest
+     * @return Logs of that day, most recent first
+     */
+    public List<EmotionLog> getLogsForDate(Date date) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.getDay(EpochDays.of(date.getTime()));
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -103,22 +768,291 @@ public class EmotionLogManager {
      */
     public Map<Emotion, Integer> getSummaryForDate(Date date) {
         Map<Emotion, Integer> summary = new HashMap<>();
-        List<EmotionLog> dateLogs = getLogsForDate(date);
-
-        // Initialize all emotions with count 0
         for (Emotion emotion : Emotion.values()) {
             summary.put(emotion, 0);
         }
-
-        // Count occurrences
-        for (EmotionLog log : dateLogs) {
-            Emotion emotion = log.getEmotion();
-            summary.put(emotion, summary.get(emotion) + 1);
+        for (SummaryActivity.EmotionSummaryItem item : getDaySummary(date).getItems()) {
+            summary.put(item.getEmotion(), item.getCount());
         }
 
         return summary;
     }
 
+    /**
+     * Get the ranked summary of a date
+     * Served from the summary cache when the day has not changed since it
+     * was last summarised
+     *
+     * @param date Any moment within the day
+     * @return Counts of the logged emotions, most frequent first
+     */
+    public DaySummary getDaySummary(Date date) {
+        int epochDay = EpochDays.of(date.getTime());
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            // Writers invalidate under the write lock, so an entry found or
+            // stored while holding the read lock matches the store
+            DaySummary summary = summaryCache.get(epochDay);
+            if (summary == null) {
+                summary = summarizeDay(epochDay);
+                summaryCache.put(summary);
+            }
+            return summary;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get a cached day summary without waiting for the history or counting
+     *
+     * @param epochDay Day key of the day
+     * @return The cached summary, or null if the day is not cached
+     */
+    DaySummary peekDaySummary(int epochDay) {
+        if (loaded.getCount() > 0) {
+            return null;
+        }
+        return summaryCache.peek(epochDay);
+    }
+
+    /**
+     * Get hit, miss and eviction counts of the day summary cache
+     *
+     * @return Counters as of this call
+     */
+    public SummaryCacheStats getSummaryCacheStats() {
+        return summaryCache.stats();
+    }
+
+    /**
+     * Count and rank one day
+     * Callers hold the read lock
+     */
+    private DaySummary summarizeDay(int epochDay) {
+        int[] counts = new int[Emotion.values().length];
+        int total = emotionLogs.countDay(epochDay, counts);
+
+        int[] ranked = new int[counts.length];
+        int logged = EmotionStats.rankByCount(counts, ranked);
+        Emotion[] emotions = Emotion.values();
+        List<SummaryActivity.EmotionSummaryItem> items = new ArrayList<>(logged);
+        for (int i = 0; i < logged; i++) {
+            int ordinal = ranked[i];
+            items.add(new SummaryActivity.EmotionSummaryItem(emotions[ordinal], counts[ordinal]));
+        }
+        return new DaySummary(epochDay, version, total, items);
+    }
+
+    /**
+     * Get emotion counts for a specific date without allocating
+     * Reads the per-day counters maintained on every add and delete, so the
+     * cost depends on the number of emotions, not the number of logs
+     *
+     * @param date The date to get counts for
+     * @param counts Output array of at least Emotion.values().length,
+     *               filled with the count of each emotion by ordinal
+     * @return Total number of logs on that date
+     */
+    public int getSummaryCountsForDate(Date date, int[] counts) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.countDay(EpochDays.of(date.getTime()), counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get emotion counts over a range of dates without allocating
+     * Reads running totals of the per-day counters, so a year costs the same
+     * as a day: O(emotions) after a binary search
+     *
+     * @param from Any moment within the first day of the range
+     * @param to Any moment within the last day of the range
+     * @param counts Output array of at least Emotion.values().length,
+     *               filled with the count of each emotion by ordinal
+     * @return Total number of logs in the range
+     */
+    public int getSummaryCountsForRange(Date from, Date to, int[] counts) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.countRange(EpochDays.of(from.getTime()), EpochDays.of(to.getTime()),
+                    counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get counts, totals and percentages over a range of dates
+     *
+     * @param from Any moment within the first day of the range
+     * @param to Any moment within the last day of the range
+     * @return Statistics of the range, both ends included
+     */
+    public EmotionStats getStatsForRange(Date from, Date to) {
+        return getStatsForDays(EpochDays.of(from.getTime()), EpochDays.of(to.getTime()));
+    }
+
+    /**
+     * Get statistics of a rolling window ending today
+     *
+     * @param days Length of the window, e.g. 7 or 30; today is included
+     * @return Statistics of the last days days
+     */
+    public EmotionStats getStatsForLastDays(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("days must be at least 1");
+        }
+        int today = EpochDays.of(System.currentTimeMillis());
+        return getStatsForDays(today - days + 1, today);
+    }
+
+    /**
+     * Get statistics of the calendar week containing a date
+     * The week starts on the locale's first day of the week
+     *
+     * @param date Any moment within the week
+     * @return Statistics of that week
+     */
+    public EmotionStats getStatsForWeek(Date date) {
+        int first = EpochDays.firstDayOfWeek(EpochDays.of(date.getTime()));
+        return getStatsForDays(first, first + 6);
+    }
+
+    /**
+     * Get statistics of the calendar month containing a date
+     *
+     * @param date Any moment within the month
+     * @return Statistics of that month
+     */
+    public EmotionStats getStatsForMonth(Date date) {
+        // Same day keys as the counts, so the bounds follow the zone they use
+        int month = EpochDays.monthOf(EpochDays.of(date.getTime()));
+        return getStatsForDays(EpochDays.firstDayOfMonth(month),
+                EpochDays.firstDayOfMonth(month + 1) - 1);
+    }
+
+    /**
+     * Compare the day of a date with the day before
+     *
+     * @param date Any moment within the later day
+     * @return Trend from the previous day to that day
+     */
+    public EmotionTrend getDayOverDay(Date date) {
+        int day = EpochDays.of(date.getTime());
+        return new EmotionTrend(getStatsForDays(day, day), getStatsForDays(day - 1, day - 1));
+    }
+
+    /**
+     * Compare the seven days ending on a date with the seven days before
+     *
+     * @param date Any moment within the last day of the later week
+     * @return Trend from the previous seven days to the last seven
+     */
+    public EmotionTrend getWeekOverWeek(Date date) {
+        int day = EpochDays.of(date.getTime());
+        return new EmotionTrend(getStatsForDays(day - 6, day), getStatsForDays(day - 13, day - 7));
+    }
+
+    /**
+     * Get how many days in a row an emotion has been logged
+     * Read from streaks kept up to date on every change
+     *
+     * @param emotion Emotion of interest
+     * @param date Any moment within the last day of the streak
+     * @return Consecutive days up to and including that day with the emotion
+     *         logged, 0 if it was not logged that day
+     */
+    public int getStreak(Emotion emotion, Date date) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.streakEndingOn(EpochDays.of(date.getTime()), emotion);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the longest run of days on which an emotion was logged
+     *
+     * @param emotion Emotion of interest
+     * @param from Any moment within the first day of the range
+     * @param to Any moment within the last day of the range
+     * @return Most consecutive days within the range with the emotion logged
+     */
+    public int getLongestStreak(Emotion emotion, Date from, Date to) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.longestStreak(EpochDays.of(from.getTime()), EpochDays.of(to.getTime()),
+                    emotion);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get how many logs fall in each hour of the day
+     * Read from counters kept up to date on every change
+     *
+     * @param emotion Emotion of interest, or null for all emotions
+     * @return 24 counts indexed by local hour, 0 for midnight to 1am
+     */
+    public int[] getHourOfDayCounts(Emotion emotion) {
+        int[] hours = new int[24];
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            emotionLogs.copyHourCounts(emotion, hours);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hours;
+    }
+
+    /**
+     * Get a day-of-week by hour-of-day heat map, e.g. "when am I anxious"
+     * Built from pre-aggregated monthly counters; only months cut by the
+     * range have their logs visited
+     *
+     * @param emotion Emotion of interest, or null for all emotions
+     * @param from Any moment within the first day, or null for the oldest
+     * @param to Any moment within the last day, or null for the newest
+     * @return 7 * 24 counts indexed by day of week (Sunday = 0) * 24 + local hour
+     */
+    public int[] getHeatMap(Emotion emotion, Date from, Date to) {
+        int fromDay = from == null ? Integer.MIN_VALUE : EpochDays.of(from.getTime());
+        int toDay = to == null ? Integer.MAX_VALUE : EpochDays.of(to.getTime());
+        int[] cells = new int[HeatMapCube.CELLS];
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            emotionLogs.sliceHeatMap(fromDay, toDay, emotion, cells);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return cells;
+    }
+
+    private EmotionStats getStatsForDays(int fromDay, int toDay) {
+        int[] counts = new int[Emotion.values().length];
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            int total = emotionLogs.countRange(fromDay, toDay, counts);
+            return new EmotionStats(fromDay, toDay, counts, total,
+                    emotionLogs.countDays(fromDay, toDay));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Get total count of logs for a specific date
      *
@@ -126,50 +1060,249 @@ public class EmotionLogManager {
      * @return Total number of logs
      */
     public int getTotalLogsForDate(Date date) {
-        return getLogsForDate(date).size();
+        return getDaySummary(date).getTotalCount();
     }
 
     /**
      * Get all unique dates that have logs
+     * Reads the store's sorted day index, so the cost depends on the number
+     * of days, not the number of logs
      *
-     * @return List of dates with logs
+     * @return Formatted dates with logs, most recent first
      */
     public List<String> getUniqueDates() {
-        Map<String, Boolean> dateMap = new HashMap<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        int[] days = getLogDays();
+        List<String> dates = new ArrayList<>(days.length);
+        for (int i = days.length - 1; i >= 0; i--) {
+            dates.add(EmotionLogFormatter.formatDay(days[i]));
+        }
+        return dates;
+    }
 
-        for (EmotionLog log : emotionLogs) {
-            String dateStr = sdf.format(log.getTimestamp());
-            dateMap.put(dateStr, true);
+    /**
+     * Get every local day that has logs
+     * Days are returned as keys so callers format only what they display;
+     * see {@link #getDateForDay(int)}
+     *
+     * @return Ascending day keys (days since 1970-01-01, local time)
+     */
+    public int[] getLogDays() {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.getDays(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        return new ArrayList<>(dateMap.keySet());
+    /**
+     * Get the local days with logs between two dates, e.g. for a calendar
+     *
+     * @param from Any moment within the first day of the range
+     * @param to Any moment within the last day of the range
+     * @return Ascending day keys within the range, both ends inclusive
+     */
+    public int[] getLogDays(Date from, Date to) {
+        int fromDay = EpochDays.of(from.getTime());
+        int toDay = EpochDays.of(to.getTime());
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.getDays(fromDay, toDay);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
-     * Delete a specific log
+     * Get the day sections of the most-recent-first log list
+     * Built from the day index once per change and shared until the next one
+     *
+     * @return Index of each day's first position in getLogsPage() order
+     */
+    public LogSectionIndex getSectionIndex() {
+        LogSectionIndex index = sectionIndex;
+        if (index != null && index.getVersion() == version) {
+            return index;
+        }
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return currentSectionIndex();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Section index of the current version, built if the cached one is older
+     * Callers hold the read or write lock, so the version cannot move
+     */
+    private LogSectionIndex currentSectionIndex() {
+        LogSectionIndex index = sectionIndex;
+        if (index != null && index.getVersion() == version) {
+            return index;
+        }
+        int days = emotionLogs.dayCount();
+        int[] dayKeys = new int[days];
+        int[] firstRows = new int[days];
+        emotionLogs.copySections(dayKeys, firstRows);
+        index = new LogSectionIndex(dayKeys, firstRows, emotionLogs.size(), version);
+        sectionIndex = index;
+        return index;
+    }
+
+    /**
+     * Get the number of local days that have logs
+     *
+     * @return Count of distinct days with at least one log
+     */
+    public int getLogDayCount() {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            return emotionLogs.dayCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Convert a day key back into a date for display or per-day queries
+     *
+     * @param epochDay Day key from {@link #getLogDays()}
+     * @return Local noon of that day
+     */
+    public static Date getDateForDay(int epochDay) {
+        return new Date(EpochDays.noonOf(epochDay));
+    }
+
+    /**
+     * Delete a log
+     * Matches by id through the store's id index, so neither object identity
+     * nor a scan over the history is involved
      *
      * @param log The log to delete
      * @return true if deleted successfully
      */
     public boolean deleteLog(EmotionLog log) {
-        return emotionLogs.remove(log);
+        long time = log.getTimestamp().getTime();
+        EmotionLogChange change;
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            if (!emotionLogs.remove(log.getId())) {
+                return false;
+            }
+            if (journal != null) {
+                journal.appendDelete(log.getId(), time);
+                checkpointIfNeeded();
+            }
+            change = recordChange(EmotionLogChange.Type.DELETED, EpochDays.of(time));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyListeners(change);
+        return true;
+    }
+
+    /**
+     * Delete many logs at once
+     * Rows are marked first and the store is compacted once, so deleting
+     * thousands of logs costs one pass over the history, not one per log;
+     * listeners get a single change event
+     *
+     * @param ids Ids of the logs to delete; unknown ids are ignored
+     * @return Number of logs deleted
+     */
+    public int deleteLogs(Collection<Long> ids) {
+        long[] targets = new long[ids.size()];
+        int i = 0;
+        for (Long id : ids) {
+            targets[i++] = id;
+        }
+        long[] times = new long[targets.length];
+
+        int removed;
+        EmotionLogChange change;
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            removed = emotionLogs.removeAll(targets, times);
+            if (removed == 0) {
+                return 0;
+            }
+            if (journal != null) {
+                for (int r = 0; r < removed; r++) {
+                    journal.appendDelete(targets[r], times[r]);
+                }
+                checkpointIfNeeded();
+            }
+            change = recordChange(EmotionLogChange.Type.DELETED, distinctDays(times, removed));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyListeners(change);
+        return removed;
+    }
+
+    /**
+     * @return Sorted local days of the first count timestamps, without repeats
+     */
+    private static int[] distinctDays(long[] times, int count) {
+        int[] days = new int[count];
+        for (int i = 0; i < count; i++) {
+            days[i] = EpochDays.of(times[i]);
+        }
+        Arrays.sort(days);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || days[distinct - 1] != days[i]) {
+                days[distinct++] = days[i];
+            }
+        }
+        return Arrays.copyOf(days, distinct);
     }
 
     /**
      * Clear all logs
-     * Useful for resetting the session
+     * Useful for resetting the session; also erases the history on disk
      */
     public void clearAllLogs() {
-        emotionLogs.clear();
+        EmotionLogChange change;
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            emotionLogs.clear();
+            if (journal != null) {
+                // The clear record holds until an empty snapshot replaces the history on disk
+                journal.appendClear();
+                journal.checkpoint(new long[0], new long[0], new byte[0], 0);
+            }
+            change = recordChange(EmotionLogChange.Type.CLEARED);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyListeners(change);
     }
 
     /**
      * Get the count of logs
+     * Answers from the snapshot header, then the recovered journal, while
+     * the history is still loading
      *
      * @return Total number of logs
      */
     public int getLogCount() {
-        return emotionLogs.size();
+        if (loaded.getCount() > 0) {
+            return startupCount;
+        }
+        lock.readLock().lock();
+        try {
+            return emotionLogs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
-}
\ No newline at end of file
+}
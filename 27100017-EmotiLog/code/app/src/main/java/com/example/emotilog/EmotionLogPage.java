@@ -0,0 +1,79 @@
+package com.example.emotilog;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * EmotionLogPage is one read-only slice of the emotion history.
+ * Design Rationale:
+ * - Screens ask for the rows they are about to show instead of copying the
+ *   whole history, so the cost of a page does not depend on history size
+ * - The list is unmodifiable and its logs are detached copies, so a page can
+ *   be handed to an adapter without any way to alter the stored history
+ * - Carries the offset of the following page so callers can keep scrolling
+ * - Carries the day sections read under the same lock as the rows, so a
+ *   screen never pairs rows and headers from different versions
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+public class EmotionLogPage {
+    private final List<EmotionLog> logs;
+    private final int offset;
+    private final LogSectionIndex sections;
+
+    EmotionLogPage(List<EmotionLog> logs, int offset, LogSectionIndex sections) {
+        this.logs = Collections.unmodifiableList(logs);
+        this.offset = offset;
+        this.sections = sections;
+    }
+
+    /**
+     * @return Logs of this page, most recent first
+     */
+    public List<EmotionLog> getLogs() {
+        return logs;
+    }
+
+    /**
+     * @return Position of the first log of this page in the whole history
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return Offset to request for the page after this one
+     */
+    public int getNextOffset() {
+        return offset + logs.size();
+    }
+
+    /**
+     * @return Number of logs in the whole history when the page was read
+     */
+    public int getTotalCount() {
+        return sections.getTotalCount();
+    }
+
+    /**
+     * @return Day sections of the history the page was read from
+     */
+    public LogSectionIndex getSections() {
+        return sections;
+    }
+
+    /**
+     * @return Manager version the page was read at
+     */
+    public long getVersion() {
+        return sections.getVersion();
+    }
+
+    /**
+     * @return true if logs exist beyond this page
+     */
+    public boolean hasMore() {
+        return getNextOffset() < getTotalCount();
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.emotilog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * EmotionLogSnapshot is the columnar on-disk copy of the emotion history.
+ * Design Rationale:
+ * - Columns instead of objects: id and timestamp columns of longs and an
+ *   emotion column of ordinal bytes, all in time order
+ * - A fixed header carries the row count and a per-day table of first rows,
+ *   so totals are known without reading a single row
+ * - Opened by memory-mapping the file, so opening costs the same for ten
+ *   logs or a million and rows are paged in only when read
+ * - Written to a temporary file and renamed into place, so a crash leaves
+ *   either the old or the new snapshot, never a mix
+ * - The generation number ties the snapshot to the journal that follows it
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.3
+ */
+class EmotionLogSnapshot {
+    private static final int MAGIC = 0x454D4C47; // "EMLG"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int DAY_ENTRY_SIZE = 8;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final MappedByteBuffer buffer;
+    private final long generation;
+    private final int count;
+    private final int dayCount;
+    private final int zoneHash;
+    private final int idOffset;
+    private final int timestampOffset;
+    private final int emotionOffset;
+
+    private EmotionLogSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an emotion log snapshot");
+        }
+        generation = buffer.getLong(8);
+        count = buffer.getInt(16);
+        dayCount = buffer.getInt(20);
+        zoneHash = buffer.getInt(24);
+        idOffset = HEADER_SIZE + dayCount * DAY_ENTRY_SIZE;
+        timestampOffset = idOffset + count * 8;
+        emotionOffset = timestampOffset + count * 8;
+        if (count < 0 || dayCount < 0 || buffer.capacity() != emotionOffset + count) {
+            throw new IOException("Truncated emotion log snapshot");
+        }
+    }
+
+    /**
+     * Map an existing snapshot file
+     *
+     * @param file Snapshot location
+     * @return The mapped snapshot, or null if no snapshot has been written yet
+     * @throws IOException If the file exists but cannot be read or is invalid
+     */
+    static EmotionLogSnapshot open(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new EmotionLogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close(); // the mapping stays valid after the file is closed
+        }
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long idAt(int row) {
+        return buffer.getLong(idOffset + row * 8);
+    }
+
+    long timestampAt(int row) {
+        return buffer.getLong(timestampOffset + row * 8);
+    }
+
+    byte emotionAt(int row) {
+        return buffer.get(emotionOffset + row);
+    }
+
+    /**
+     * Bulk-copy the id column
+     *
+     * @param out Array of at least size() longs
+     */
+    void readIds(long[] out) {
+        ByteBuffer column = buffer.duplicate();
+        column.position(idOffset);
+        column.asLongBuffer().get(out, 0, count);
+    }
+
+    /**
+     * Bulk-copy the timestamp column
+     *
+     * @param out Array of at least size() longs
+     */
+    void readTimestamps(long[] out) {
+        ByteBuffer column = buffer.duplicate();
+        column.position(timestampOffset);
+        column.asLongBuffer().get(out, 0, count);
+    }
+
+    /**
+     * Bulk-copy the emotion ordinal column
+     *
+     * @param out Array of at least size() bytes
+     */
+    void readEmotions(byte[] out) {
+        ByteBuffer column = buffer.duplicate();
+        column.position(emotionOffset);
+        column.get(out, 0, count);
+    }
+
+    int dayCount() {
+        return dayCount;
+    }
+
+    int dayAt(int index) {
+        return buffer.getInt(HEADER_SIZE + index * DAY_ENTRY_SIZE);
+    }
+
+    int dayStartAt(int index) {
+        return buffer.getInt(HEADER_SIZE + index * DAY_ENTRY_SIZE + 4);
+    }
+
+    /**
+     * The day table is only valid in the time zone it was computed in
+     *
+     * @return true if the device is still in that time zone
+     */
+    boolean matchesZone() {
+        return zoneHash == EpochDays.zoneId().hashCode();
+    }
+
+    /**
+     * Write a snapshot and atomically replace the existing one
+     *
+     * @param file Snapshot location
+     * @param generation Generation of the journal that will follow this snapshot
+     * @param ids Id column, parallel to timestamps
+     * @param timestamps Timestamp column, ascending
+     * @param emotions Emotion ordinal column, parallel to timestamps
+     * @param count Number of rows to write
+     * @throws IOException If the snapshot cannot be written
+     */
+    static void write(File file, long generation, long[] ids, long[] timestamps, byte[] emotions,
+                      int count) throws IOException {
+        // Build the day table: one (day, first row) entry per distinct day,
+        // all in one zone even if the device zone changes meanwhile
+        TimeZone zone = EpochDays.zone();
+        int[] days = new int[16];
+        int[] starts = new int[16];
+        int dayCount = 0;
+        for (int row = 0; row < count; row++) {
+            int day = EpochDays.of(timestamps[row], zone);
+            if (dayCount == 0 || days[dayCount - 1] != day) {
+                if (dayCount == days.length) {
+                    days = Arrays.copyOf(days, dayCount * 2);
+                    starts = Arrays.copyOf(starts, dayCount * 2);
+                }
+                days[dayCount] = day;
+                starts[dayCount] = row;
+                dayCount++;
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            FileChannel channel = out.getChannel();
+            ByteBuffer chunk = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+            chunk.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(generation)
+                    .putInt(count)
+                    .putInt(dayCount)
+                    .putInt(zone.getID().hashCode())
+                    .putInt(0); // reserved
+            for (int i = 0; i < dayCount; i++) {
+                if (chunk.remaining() < DAY_ENTRY_SIZE) {
+                    drain(channel, chunk);
+                }
+                chunk.putInt(days[i]).putInt(starts[i]);
+            }
+            putColumn(channel, chunk, ids, count);
+            putColumn(channel, chunk, timestamps, count);
+            drain(channel, chunk);
+            ByteBuffer emotionColumn = ByteBuffer.wrap(emotions, 0, count);
+            while (emotionColumn.hasRemaining()) {
+                channel.write(emotionColumn);
+            }
+            channel.force(true);
+        } finally {
+            out.close();
+        }
+
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private static void putColumn(FileChannel channel, ByteBuffer chunk, long[] column, int count)
+            throws IOException {
+        for (int row = 0; row < count; row++) {
+            if (chunk.remaining() < 8) {
+                drain(channel, chunk);
+            }
+            chunk.putLong(column[row]);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+}
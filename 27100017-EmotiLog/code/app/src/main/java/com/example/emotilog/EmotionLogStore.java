@@ -0,0 +1,652 @@
+package com.example.emotilog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * EmotionLogStore is the time-ordered storage engine behind EmotionLogManager.
+ * Design Rationale:
+ * - Rows are kept oldest-first internally, so a log stamped "now" is a plain
+ *   append (O(1) amortized) instead of a full re-sort on every tap
+ * - Back-dated logs (e.g. imported history) find their slot by binary search,
+ *   so placing them costs O(log n) comparisons
+ * - Callers address rows newest-first, matching the reverse chronological
+ *   order the UI has always shown
+ * - Logs sharing a timestamp keep insertion order, the newest insert first
+ * - A DayIndex kept in step with every change answers per-day queries
+ *   without scanning or allocating a Calendar
+ * - Rows live in parallel primitive columns (a long id, a long timestamp and
+ *   a byte emotion ordinal), about 17 bytes per log instead of an EmotionLog,
+ *   a Date and their object headers; EmotionLog objects are only created on
+ *   request
+ * - Logs are deleted by id: an IdIndex finds the timestamp, a binary search
+ *   finds the row, so no scan over the history and no reliance on object
+ *   identity
+ * - Imports are merged in a single pass from the back of the columns, so
+ *   adding a million back-dated logs costs O(n + m), not m array shifts
+ * - A HeatMapCube of (emotion, day of week, hour) counters is kept up to
+ *   date by every change, so "when do I log this" never scans the history
+ * - Batch deletes mark rows as tombstones and compact them away in a single
+ *   pass, so deleting k logs costs O(k + n) rather than k array shifts
+ * - Day keys and heat map cells depend on the device time zone; after it
+ *   changes, rebuildDays() recomputes both from the timestamp column in one
+ *   pass, while the rows themselves stay where they are
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.5
+ */
+class EmotionLogStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final byte TOMBSTONE = -1;
+    private static final long NOT_FOUND = Long.MIN_VALUE;
+
+    private final Emotion[] emotionValues = Emotion.values();
+    private final DayIndex dayIndex;
+    private IdIndex idIndex;
+    private final HeatMapCube heatMap = new HeatMapCube();
+
+    // Oldest first; only the first size entries are in use
+    private long[] ids;
+    private long[] timestamps;
+    private byte[] emotions;
+    private int size;
+
+    EmotionLogStore() {
+        ids = new long[INITIAL_CAPACITY];
+        timestamps = new long[INITIAL_CAPACITY];
+        emotions = new byte[INITIAL_CAPACITY];
+        dayIndex = new DayIndex();
+        idIndex = new IdIndex();
+    }
+
+    /**
+     * Insert a log at its chronological position
+     *
+     * @param log The log to insert
+     * @return Position of the log in newest-first order
+     */
+    int insert(EmotionLog log) {
+        return insert(log.getId(), log.getTimestamp().getTime(), log.getEmotion());
+    }
+
+    /**
+     * Insert a log at its chronological position
+     *
+     * @param id Id of the log
+     * @param time Timestamp of the log in milliseconds
+     * @param emotion Emotion of the log
+     * @return Position of the log in newest-first order
+     */
+    int insert(long id, long time, Emotion emotion) {
+        // Fast path: the common case is a log stamped "now"
+        int index = (size == 0 || time >= timestamps[size - 1]) ? size : upperBound(time);
+
+        if (size == timestamps.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            emotions = Arrays.copyOf(emotions, capacity);
+        }
+        int tail = size - index;
+        System.arraycopy(ids, index, ids, index + 1, tail);
+        System.arraycopy(timestamps, index, timestamps, index + 1, tail);
+        System.arraycopy(emotions, index, emotions, index + 1, tail);
+        ids[index] = id;
+        timestamps[index] = time;
+        emotions[index] = (byte) emotion.ordinal();
+        size++;
+
+        int day = EpochDays.of(time);
+        dayIndex.onInsert(day, index, emotion.ordinal());
+        heatMap.add(time, day, emotion.ordinal(), 1);
+        idIndex.put(id, time);
+        return tail;
+    }
+
+    /**
+     * Merge a batch of logs into the store in one pass
+     * Logs whose id is already stored, or repeated within the batch, are
+     * skipped. Both sides are in time order, so the columns are filled from
+     * the back without moving any row twice, then the day index is rebuilt
+     *
+     * @param newIds Ids of the batch; compacted in place like the other columns
+     * @param newTimes Timestamps of the batch, ascending
+     * @param newEmotions Emotion ordinals of the batch
+     * @param count Number of logs in the batch
+     * @return Number of logs added
+     */
+    int merge(long[] newIds, long[] newTimes, byte[] newEmotions, int count) {
+        int added = 0;
+        for (int i = 0; i < count; i++) {
+            if (idIndex.get(newIds[i], NOT_FOUND) != NOT_FOUND) {
+                continue;
+            }
+            idIndex.put(newIds[i], newTimes[i]);
+            heatMap.add(newTimes[i], EpochDays.of(newTimes[i]), newEmotions[i], 1);
+            newIds[added] = newIds[i];
+            newTimes[added] = newTimes[i];
+            newEmotions[added] = newEmotions[i];
+            added++;
+        }
+        if (added == 0) {
+            return 0;
+        }
+
+        int merged = size + added;
+        if (merged > timestamps.length) {
+            int capacity = Math.max(merged, size + (size >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            emotions = Arrays.copyOf(emotions, capacity);
+        }
+        int i = size - 1;
+        int j = added - 1;
+        for (int k = merged - 1; j >= 0; k--) {
+            // On equal timestamps the batch goes after existing rows, as if inserted later
+            if (i < 0 || newTimes[j] >= timestamps[i]) {
+                ids[k] = newIds[j];
+                timestamps[k] = newTimes[j];
+                emotions[k] = newEmotions[j];
+                j--;
+            } else {
+                ids[k] = ids[i];
+                timestamps[k] = timestamps[i];
+                emotions[k] = emotions[i];
+                i--;
+            }
+        }
+        size = merged;
+        dayIndex.rebuild(timestamps, emotions, size);
+        return added;
+    }
+
+    /**
+     * Remove the log with the given id
+     * Shifts only the newer rows down over it, so deleting a recent log, the
+     * usual case, is cheap at any size, and even the oldest of a million
+     * takes under a millisecond (EmotionLogDeleteBenchmark). Tombstones would
+     * make every position-based read skip rows; many deletes use removeAll()
+     *
+     * @param id Id of the log
+     * @return true if the log was found and removed
+     */
+    boolean remove(long id) {
+        int index = find(id);
+        if (index < 0) {
+            return false;
+        }
+        long time = timestamps[index];
+        int ordinal = emotions[index];
+        int tail = size - index - 1;
+        System.arraycopy(ids, index + 1, ids, index, tail);
+        System.arraycopy(timestamps, index + 1, timestamps, index, tail);
+        System.arraycopy(emotions, index + 1, emotions, index, tail);
+        size--;
+        int day = EpochDays.of(time);
+        dayIndex.onRemove(day, ordinal);
+        heatMap.add(time, day, ordinal, -1);
+        idIndex.remove(id);
+        return true;
+    }
+
+    /**
+     * Remove every log whose id is given, compacting the columns once
+     * Unknown and repeated ids are skipped. On return the first n entries of
+     * targets are the ids actually removed, in their original order
+     *
+     * @param targets Ids of the logs to remove; reordered as described above
+     * @param removedTimes Receives the timestamp of each removed log, parallel
+     *                     to the compacted ids; at least targets.length long
+     * @return Number of logs removed (n)
+     */
+    int removeAll(long[] targets, long[] removedTimes) {
+        int removed = 0;
+        int firstMarked = size;
+        for (long id : targets) {
+            int index = find(id);
+            if (index < 0) {
+                continue;
+            }
+            int day = EpochDays.of(timestamps[index]);
+            dayIndex.onMarkRemoved(day, emotions[index]);
+            heatMap.add(timestamps[index], day, emotions[index], -1);
+            idIndex.remove(id);
+            emotions[index] = TOMBSTONE;
+            firstMarked = Math.min(firstMarked, index);
+            targets[removed] = id;
+            removedTimes[removed] = timestamps[index];
+            removed++;
+        }
+        if (removed == 0) {
+            return 0;
+        }
+
+        // Rows before the first tombstone stay where they are
+        int kept = firstMarked;
+        for (int row = firstMarked; row < size; row++) {
+            if (emotions[row] != TOMBSTONE) {
+                ids[kept] = ids[row];
+                timestamps[kept] = timestamps[row];
+                emotions[kept] = emotions[row];
+                kept++;
+            }
+        }
+        size = kept;
+        dayIndex.compact();
+        return removed;
+    }
+
+    /**
+     * Find the row of a log
+     *
+     * @return Row index, or -1 if no log has that id
+     */
+    private int find(long id) {
+        long time = idIndex.get(id, NOT_FOUND);
+        if (time == NOT_FOUND) {
+            return -1;
+        }
+        for (int i = lowerBound(time); i < size && timestamps[i] == time; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the log at a position in newest-first order
+     * Creates a new EmotionLog; use a cursor to read rows without allocating
+     *
+     * @param position 0 for the most recent log
+     * @return The log at that position
+     */
+    EmotionLog get(int position) {
+        return materialize(size - 1 - position);
+    }
+
+    long getId(int position) {
+        return ids[size - 1 - position];
+    }
+
+    long getTimestamp(int position) {
+        return timestamps[size - 1 - position];
+    }
+
+    Emotion getEmotion(int position) {
+        return emotionValues[emotions[size - 1 - position]];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+        dayIndex.clear();
+        idIndex.clear();
+        heatMap.clear();
+    }
+
+    /**
+     * Append every row of a snapshot
+     * On an empty store the columns are bulk-copied and the day index is
+     * taken from the snapshot's day table; no objects are created
+     *
+     * @param snapshot Snapshot to load
+     */
+    void load(EmotionLogSnapshot snapshot) {
+        int count = snapshot.size();
+
+        long maxId = 0;
+        if (size > 0 || !snapshot.matchesZone()) {
+            for (int row = 0; row < count; row++) {
+                long id = snapshot.idAt(row);
+                insert(id, snapshot.timestampAt(row), emotionValues[snapshot.emotionAt(row)]);
+                maxId = Math.max(maxId, id);
+            }
+            LogIdGenerator.observe(maxId);
+            return;
+        }
+
+        int capacity = Math.max(INITIAL_CAPACITY, count);
+        ids = new long[capacity];
+        timestamps = new long[capacity];
+        emotions = new byte[capacity];
+        snapshot.readIds(ids);
+        snapshot.readTimestamps(timestamps);
+        snapshot.readEmotions(emotions);
+        size = count;
+        dayIndex.load(snapshot);
+        idIndex = new IdIndex(count);
+        for (int row = 0; row < count; row++) {
+            idIndex.put(ids[row], timestamps[row]);
+            heatMap.add(timestamps[row], EpochDays.of(timestamps[row]), emotions[row], 1);
+            maxId = Math.max(maxId, ids[row]);
+        }
+        // New ids must not repeat stored ones, even if the clock went back
+        LogIdGenerator.observe(maxId);
+    }
+
+    /**
+     * Recompute the day index and heat map in the current time zone
+     * Call after EpochDays.refresh() reports a change
+     */
+    void rebuildDays() {
+        dayIndex.rebuild(timestamps, emotions, size);
+        heatMap.clear();
+        for (int row = 0; row < size; row++) {
+            heatMap.add(timestamps[row], EpochDays.of(timestamps[row]), emotions[row], 1);
+        }
+    }
+
+    /**
+     * @return Id column of the store, oldest first
+     */
+    long[] copyIds() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * @return Timestamp column of the store, oldest first
+     */
+    long[] copyTimestamps() {
+        return Arrays.copyOf(timestamps, size);
+    }
+
+    /**
+     * @return Emotion ordinal column of the store, oldest first
+     */
+    byte[] copyEmotions() {
+        return Arrays.copyOf(emotions, size);
+    }
+
+    /**
+     * Find where a local day begins in the oldest-first rows
+     *
+     * @param epochDay Day key from {@link EpochDays#of(long)}
+     * @return First row on or after that day, or size() if there is none
+     */
+    int firstRowOfDay(int epochDay) {
+        int slot = dayIndex.find(epochDay);
+        if (slot < 0) {
+            slot = -slot - 1;
+        }
+        return slot < dayIndex.dayCount() ? dayIndex.startOf(slot) : size;
+    }
+
+    /**
+     * @return First oldest-first row with a timestamp >= time
+     */
+    int firstRowAtOrAfter(long time) {
+        return lowerBound(time);
+    }
+
+    /**
+     * Copy consecutive rows, oldest first
+     *
+     * @param fromRow First row to copy
+     * @param idsOut Receives the ids
+     * @param timesOut Receives the timestamps
+     * @param emotionsOut Receives the emotion ordinals
+     * @param max Maximum number of rows to copy
+     * @return Number of rows copied
+     */
+    int copyRows(int fromRow, long[] idsOut, long[] timesOut, byte[] emotionsOut, int max) {
+        int count = Math.max(0, Math.min(max, size - fromRow));
+        System.arraycopy(ids, fromRow, idsOut, 0, count);
+        System.arraycopy(timestamps, fromRow, timesOut, 0, count);
+        System.arraycopy(emotions, fromRow, emotionsOut, 0, count);
+        return count;
+    }
+
+    /**
+     * Count the logs of one local day
+     *
+     * @param epochDay Day key from {@link EpochDays#of(long)}
+     * @return Number of logs on that day
+     */
+    int countDay(int epochDay) {
+        int slot = dayIndex.find(epochDay);
+        return slot < 0 ? 0 : dayIndex.countOf(slot);
+    }
+
+    /**
+     * Copy the per-emotion counts of one local day
+     *
+     * @param epochDay Day key from {@link EpochDays#of(long)}
+     * @param out Array of at least Emotion.values().length, indexed by ordinal
+     * @return Total number of logs on that day
+     */
+    int countDay(int epochDay, int[] out) {
+        int slot = dayIndex.find(epochDay);
+        if (slot < 0) {
+            Arrays.fill(out, 0, emotionValues.length, 0);
+            return 0;
+        }
+        dayIndex.copyEmotionCounts(slot, out);
+        return dayIndex.countOf(slot);
+    }
+
+    /**
+     * @return Number of distinct local days with logs
+     */
+    int dayCount() {
+        return dayIndex.dayCount();
+    }
+
+    /**
+     * Copy the days with logs and where each begins, newest day first
+     *
+     * @param daysOut Receives the day keys; at least dayCount() long
+     * @param firstRowsOut Receives the newest-first row of each day's newest log
+     */
+    void copySections(int[] daysOut, int[] firstRowsOut) {
+        int days = dayIndex.dayCount();
+        for (int i = 0; i < days; i++) {
+            int slot = days - 1 - i;
+            daysOut[i] = dayIndex.dayAt(slot);
+            firstRowsOut[i] = size - dayIndex.startOf(slot) - dayIndex.countOf(slot);
+        }
+    }
+
+    /**
+     * Copy the local days with logs within a range
+     *
+     * @param fromDay First day key of the range, inclusive
+     * @param toDay Last day key of the range, inclusive
+     * @return Ascending day keys in the range
+     */
+    int[] getDays(int fromDay, int toDay) {
+        return dayIndex.copyDays(fromDay, toDay);
+    }
+
+    /**
+     * Sum the per-emotion counts of a range of local days
+     *
+     * @param fromDay First day key of the range, inclusive
+     * @param toDay Last day key of the range, inclusive
+     * @param out Array of at least Emotion.values().length, indexed by ordinal
+     * @return Total number of logs in the range
+     */
+    int countRange(int fromDay, int toDay, int[] out) {
+        return dayIndex.sumRange(fromDay, toDay, out);
+    }
+
+    /**
+     * @return Number of local days with logs in the range, both ends inclusive
+     */
+    int countDays(int fromDay, int toDay) {
+        return dayIndex.countDays(fromDay, toDay);
+    }
+
+    /**
+     * Get the streak of an emotion ending on a local day
+     *
+     * @return Consecutive days up to epochDay with the emotion logged
+     */
+    int streakEndingOn(int epochDay, Emotion emotion) {
+        return dayIndex.streakEndingOn(epochDay, emotion.ordinal());
+    }
+
+    /**
+     * @return Most consecutive days within the range with the emotion logged
+     */
+    int longestStreak(int fromDay, int toDay, Emotion emotion) {
+        return dayIndex.longestStreak(fromDay, toDay, emotion.ordinal());
+    }
+
+    /**
+     * Copy the hour-of-day histogram of one emotion
+     * Folds the days of the week of the heat map together
+     *
+     * @param emotion Emotion to read, or null for all emotions together
+     * @param out Array of at least 24, indexed by local hour
+     */
+    void copyHourCounts(Emotion emotion, int[] out) {
+        int[] cells = new int[HeatMapCube.CELLS];
+        heatMap.addTotal(emotion == null ? -1 : emotion.ordinal(), cells);
+        Arrays.fill(out, 0, HeatMapCube.HOURS, 0);
+        for (int cell = 0; cell < HeatMapCube.CELLS; cell++) {
+            out[cell % HeatMapCube.HOURS] += cells[cell];
+        }
+    }
+
+    /**
+     * Count logs by day of week and hour over a range of local days
+     * Whole months come from the heat map's month cubes; only the rows of
+     * months cut by the range are visited
+     *
+     * @param fromDay First day key of the range, inclusive
+     * @param toDay Last day key of the range, inclusive
+     * @param emotion Emotion to count, or null for all emotions
+     * @param out Receives 7 * 24 counts, indexed by day of week (Sunday = 0)
+     *            * 24 + hour
+     */
+    void sliceHeatMap(int fromDay, int toDay, Emotion emotion, int[] out) {
+        Arrays.fill(out, 0, HeatMapCube.CELLS, 0);
+        if (size == 0 || fromDay > toDay) {
+            return;
+        }
+        // Keep month arithmetic within the days that hold logs
+        fromDay = Math.max(fromDay, EpochDays.of(timestamps[0]));
+        toDay = Math.min(toDay, EpochDays.of(timestamps[size - 1]));
+        int ordinal = emotion == null ? -1 : emotion.ordinal();
+        if (fromDay == EpochDays.of(timestamps[0]) && toDay == EpochDays.of(timestamps[size - 1])) {
+            heatMap.addTotal(ordinal, out);
+            return;
+        }
+
+        int lastMonth = EpochDays.monthOf(toDay);
+        for (int slot = heatMap.firstMonthFrom(EpochDays.monthOf(fromDay));
+             slot < heatMap.monthCount() && heatMap.monthAt(slot) <= lastMonth; slot++) {
+            int month = heatMap.monthAt(slot);
+            int first = EpochDays.firstDayOfMonth(month);
+            int last = EpochDays.firstDayOfMonth(month + 1) - 1;
+            if (fromDay <= first && last <= toDay) {
+                heatMap.addMonth(slot, ordinal, out);
+            } else {
+                addRowsToHeatMap(Math.max(fromDay, first), Math.min(toDay, last), ordinal, out);
+            }
+        }
+    }
+
+    private void addRowsToHeatMap(int fromDay, int toDay, int ordinal, int[] out) {
+        int end = firstRowOfDay(toDay + 1);
+        for (int row = firstRowOfDay(fromDay); row < end; row++) {
+            if (ordinal < 0 || emotions[row] == ordinal) {
+                long time = timestamps[row];
+                out[HeatMapCube.cellOf(time, EpochDays.of(time))]++;
+            }
+        }
+    }
+
+    /**
+     * Copy the logs of one local day, most recent first
+     *
+     * @param epochDay Day key from {@link EpochDays#of(long)}
+     * @return Newest-first list of that day's logs
+     */
+    List<EmotionLog> getDay(int epochDay) {
+        int slot = dayIndex.find(epochDay);
+        if (slot < 0) {
+            return new ArrayList<>();
+        }
+        int start = dayIndex.startOf(slot);
+        int count = dayIndex.countOf(slot);
+        List<EmotionLog> day = new ArrayList<>(count);
+        for (int i = start + count - 1; i >= start; i--) {
+            day.add(materialize(i));
+        }
+        return day;
+    }
+
+    /**
+     * Copy a range of logs, most recent first
+     *
+     * @param position First position to copy, 0 for the most recent log
+     * @param count Maximum number of logs to copy
+     * @return Newest-first list of at most count logs
+     */
+    List<EmotionLog> getRange(int position, int count) {
+        int end = Math.min(size, position + count);
+        List<EmotionLog> range = new ArrayList<>(Math.max(0, end - position));
+        for (int p = position; p < end; p++) {
+            range.add(get(p));
+        }
+        return range;
+    }
+
+    /**
+     * Copy all logs into a new list, most recent first
+     *
+     * @return Newest-first copy of the store
+     */
+    List<EmotionLog> toList() {
+        List<EmotionLog> copy = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            copy.add(materialize(i));
+        }
+        return copy;
+    }
+
+    private EmotionLog materialize(int index) {
+        return new EmotionLog(ids[index], emotionValues[emotions[index]], new Date(timestamps[index]));
+    }
+
+    /**
+     * @return Index of the first row with a timestamp >= time
+     */
+    private int lowerBound(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return Index of the first row with a timestamp > time
+     */
+    private int upperBound(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] <= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.emotilog;
+
+import java.util.Date;
+
+/**
+ * EmotionStats holds emotion counts aggregated over a range of days.
+ * Design Rationale:
+ * - Returned by the range queries of EmotionLogManager (custom ranges,
+ *   calendar weeks and months, rolling windows)
+ * - Immutable snapshot: counts are copied when the query runs, so the object
+ *   can be kept or passed between threads
+ * - Counts are indexed by Emotion ordinal, so reading one is an array access
+ * - Top-K ranking is an insertion sort over the eight ordinals in an int
+ *   array; no comparator, boxing or list is involved
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+public class EmotionStats {
+    private final int fromDay;
+    private final int toDay;
+    private final int[] counts;
+    private final int total;
+    private final int activeDays;
+
+    EmotionStats(int fromDay, int toDay, int[] counts, int total, int activeDays) {
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.counts = counts;
+        this.total = total;
+        this.activeDays = activeDays;
+    }
+
+    /**
+     * @return Number of logs of one emotion in the range
+     */
+    public int getCount(Emotion emotion) {
+        return counts[emotion.ordinal()];
+    }
+
+    /**
+     * @return Number of logs in the range
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return Share of the range's logs with this emotion, from 0 to 100
+     */
+    public float getPercentage(Emotion emotion) {
+        if (total == 0) return 0;
+        return (counts[emotion.ordinal()] * 100.0f) / total;
+    }
+
+    /**
+     * Get the most logged emotions of the range
+     *
+     * @param k Maximum number of emotions to return
+     * @return Up to k logged emotions, most logged first; ties keep enum order
+     */
+    public Emotion[] getTopEmotions(int k) {
+        int[] ranked = new int[counts.length];
+        int logged = rankByCount(counts, ranked);
+        Emotion[] values = Emotion.values();
+        Emotion[] top = new Emotion[Math.min(k, logged)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = values[ranked[i]];
+        }
+        return top;
+    }
+
+    /**
+     * Order emotion ordinals by count, highest first
+     * Stable, so equal counts keep enum order
+     *
+     * @param counts Counts indexed by ordinal
+     * @param ranked Receives every ordinal, logged emotions first by count
+     * @return Number of emotions with a count above zero
+     */
+    static int rankByCount(int[] counts, int[] ranked) {
+        int n = Math.min(counts.length, Emotion.values().length);
+        int logged = 0;
+        for (int ordinal = 0; ordinal < n; ordinal++) {
+            int i = ordinal;
+            while (i > 0 && counts[ranked[i - 1]] < counts[ordinal]) {
+                ranked[i] = ranked[i - 1];
+                i--;
+            }
+            ranked[i] = ordinal;
+            if (counts[ordinal] > 0) {
+                logged++;
+            }
+        }
+        return logged;
+    }
+
+    /**
+     * @return Number of days in the range, both ends included
+     */
+    public int getDayCount() {
+        return toDay - fromDay + 1;
+    }
+
+    /**
+     * @return Number of days in the range with at least one log
+     */
+    public int getActiveDayCount() {
+        return activeDays;
+    }
+
+    /**
+     * @return Local noon of the first day of the range
+     */
+    public Date getFromDate() {
+        return EmotionLogManager.getDateForDay(fromDay);
+    }
+
+    /**
+     * @return Local noon of the last day of the range
+     */
+    public Date getToDate() {
+        return EmotionLogManager.getDateForDay(toDay);
+    }
+}
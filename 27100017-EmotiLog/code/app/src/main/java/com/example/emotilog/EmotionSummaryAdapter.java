@@ -1,7 +1,6 @@
 package com.example.emotilog;
 
 import android.content.Context;
-import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,36 +11,44 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.text.DecimalFormatSymbols;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * EmotionSummaryAdapter displays emotion count statistics in a ListView.
  * Design Rationale:
  * - Custom adapter for displaying summary statistics
  * - Shows count, percentage, and visual progress bar for each emotion
- * - Color-codes entries to match emotion colors for consistency
- * - ViewHolder pattern for performance
+ * - Color-codes entries to match emotion colors for consistency, using the
+ *   pre-parsed colors and shared color filters, so binding parses nothing
+ * - ViewHolder pattern for performance; binding allocates nothing: counts
+ *   and percentages are written into the holder's char arrays, and views
+ *   are only touched when the row's emotion changes
+ * - Each row mutates its own progress drawable once, so tinting one bar
+ *   never recolors the bars of other rows that share the resource
  * - Displays only emotions that have been logged (count > 0)
  *
  * @author Muhammad Bin Tariq
- * @version 0.2
+ * @version 0.4
  */
 public class EmotionSummaryAdapter extends ArrayAdapter<SummaryActivity.EmotionSummaryItem> {
 
     private Context context;
     private List<SummaryActivity.EmotionSummaryItem> items;
     private int totalCount;
+    private final char decimalSeparator;
 
     public EmotionSummaryAdapter(Context context, List<SummaryActivity.EmotionSummaryItem> items, int totalCount) {
         super(context, 0, items);
         this.context = context;
         this.items = items;
         this.totalCount = totalCount;
+        this.decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
     }
 
     /**
      * ViewHolder pattern for efficient view recycling
+     * Also owns the text buffers its row is bound from
      */
     private static class ViewHolder {
         TextView tvEmotion;
@@ -49,6 +56,9 @@ public class EmotionSummaryAdapter extends ArrayAdapter<SummaryActivity.EmotionS
         TextView tvPercentage;
         ProgressBar progressBar;
         View colorIndicator;
+        Emotion boundEmotion; // emotion whose name and colors are shown
+        final char[] countText = new char[FixedPointFormat.MAX_COUNT_CHARS];
+        final char[] percentText = new char[FixedPointFormat.MAX_PERCENT_CHARS];
     }
 
     /**
@@ -74,6 +84,10 @@ public class EmotionSummaryAdapter extends ArrayAdapter<SummaryActivity.EmotionS
             holder.progressBar = convertView.findViewById(R.id.progress_bar);
             holder.colorIndicator = convertView.findViewById(R.id.color_indicator);
 
+            // Give the row its own drawable state before tinting it
+            holder.progressBar.getProgressDrawable().mutate();
+            holder.progressBar.setMax(100);
+
             convertView.setTag(holder);
         } else {
             holder = (ViewHolder) convertView.getTag();
@@ -82,35 +96,44 @@ public class EmotionSummaryAdapter extends ArrayAdapter<SummaryActivity.EmotionS
         SummaryActivity.EmotionSummaryItem item = items.get(position);
 
         if (item != null) {
-            Emotion emotion = item.getEmotion();
-            int count = item.getCount();
-            float percentage = item.getPercentage(totalCount);
+            bind(holder, item);
+        }
 
-            // Set emotion name with emoji
-            holder.tvEmotion.setText(emotion.getFormattedDisplay());
+        return convertView;
+    }
+
+    /**
+     * Show an item in a row without allocating
+     *
+     * @param holder Views and buffers of the row
+     * @param item Emotion and count to show
+     */
+    private void bind(ViewHolder holder, SummaryActivity.EmotionSummaryItem item) {
+        Emotion emotion = item.getEmotion();
+        int count = item.getCount();
 
-            // Set count
-            holder.tvCount.setText(String.valueOf(count));
+        if (holder.boundEmotion != emotion) {
+            holder.boundEmotion = emotion;
 
-            // Set percentage
-            holder.tvPercentage.setText(String.format(Locale.getDefault(), "%.1f%%", percentage));
+            // Set emotion name with emoji; built once by the enum
+            holder.tvEmotion.setText(emotion.getFormattedDisplay());
 
-            // Set progress bar
-            holder.progressBar.setMax(100);
-            holder.progressBar.setProgress((int) percentage);
-
-            // Set color indicator
-            try {
-                int color = Color.parseColor(emotion.getColorCode());
-                holder.colorIndicator.setBackgroundColor(color);
-
-                // Also color the progress bar
-                holder.progressBar.getProgressDrawable().setColorFilter(color, android.graphics.PorterDuff.Mode.SRC_IN);
-            } catch (IllegalArgumentException e) {
-                holder.colorIndicator.setBackgroundColor(Color.LTGRAY);
-            }
+            // Set color indicator; parsed once by the enum
+            holder.colorIndicator.setBackgroundColor(emotion.getColorArgb());
+
+            // Also color this row's progress bar with the shared filter
+            holder.progressBar.getProgressDrawable().setColorFilter(EmotionDrawables.colorFilter(emotion));
         }
 
-        return convertView;
+        // Set count
+        int length = FixedPointFormat.formatCount(count, holder.countText);
+        holder.tvCount.setText(holder.countText, 0, length);
+
+        // Set percentage, one decimal
+        length = FixedPointFormat.formatPercent(count, totalCount, decimalSeparator, holder.percentText);
+        holder.tvPercentage.setText(holder.percentText, 0, length);
+
+        // Set progress bar
+        holder.progressBar.setProgress(totalCount == 0 ? 0 : (int) (count * 100L / totalCount));
     }
 }
\ No newline at end of file
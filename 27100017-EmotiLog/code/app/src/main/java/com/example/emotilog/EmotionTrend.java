@@ -0,0 +1,50 @@
+package com.example.emotilog;
+
+/**
+ * EmotionTrend compares two equally long, back-to-back periods.
+ * Design Rationale:
+ * - Day-over-day and week-over-week views are the same comparison with a
+ *   different period length, so one type serves both
+ * - Both periods come from the running totals of the day index, so building
+ *   a trend costs two range lookups regardless of history size
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.1
+ */
+public class EmotionTrend {
+    private final EmotionStats current;
+    private final EmotionStats previous;
+
+    EmotionTrend(EmotionStats current, EmotionStats previous) {
+        this.current = current;
+        this.previous = previous;
+    }
+
+    /**
+     * @return Statistics of the later period
+     */
+    public EmotionStats getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return Statistics of the period just before it
+     */
+    public EmotionStats getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return Change in the count of an emotion; positive if it rose
+     */
+    public int getDelta(Emotion emotion) {
+        return current.getCount(emotion) - previous.getCount(emotion);
+    }
+
+    /**
+     * @return Change in the total number of logs
+     */
+    public int getTotalDelta() {
+        return current.getTotal() - previous.getTotal();
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.emotilog;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * EpochDays converts timestamps into local calendar day keys.
+ * Design Rationale:
+ * - A day key is the number of days since 1970-01-01 in the device time zone,
+ *   so "same day" checks become a single int comparison
+ * - Pure arithmetic on the zone offset, no Calendar allocated per timestamp
+ * - The zone is looked up once and again only on refresh(), when the device
+ *   reports a time zone or locale change; TimeZone.getDefault() returns a
+ *   fresh clone on every call, too slow to make per timestamp
+ * - Timestamps are supported from year 1 to year 9999; day keys of anything
+ *   further out would not fit an int, so of() fails rather than wrap
+ * - Weeks and months are found from day keys too; only the locale's first
+ *   day of the week comes from a Calendar, read with the zone above
+ * - refresh() is called under EmotionLogManager's write lock, which then
+ *   rebuilds every day key it holds, so readers never mix keys of two zones;
+ *   other caches compare generation() to notice the change themselves
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.5
+ */
+final class EpochDays {
+    static final long MILLIS_PER_DAY = 86400000L;
+    static final long MILLIS_PER_HOUR = 3600000L;
+    // 0001-01-01T00:00:00Z and 9999-12-31T23:59:59.999Z
+    static final long MIN_MILLIS = -62135596800000L;
+    static final long MAX_MILLIS = 253402300799999L;
+
+    private static volatile TimeZone zone = TimeZone.getDefault();
+    // 0 for Sunday through 6 for Saturday, as dayOfWeek() counts
+    private static volatile int firstDayOfWeek = localFirstDayOfWeek(zone);
+    // Bumped by every refresh() that changed something, after the new values
+    private static volatile int generation;
+
+    private EpochDays() {
+    }
+
+    private static int localFirstDayOfWeek(TimeZone zone) {
+        return Calendar.getInstance(zone, Locale.getDefault()).getFirstDayOfWeek() - Calendar.SUNDAY;
+    }
+
+    /**
+     * Re-read the device time zone and the locale's first day of the week
+     * Day keys computed before a change that returns true are stale
+     *
+     * @return true if either one changed
+     */
+    static synchronized boolean refresh() {
+        TimeZone current = TimeZone.getDefault();
+        int first = localFirstDayOfWeek(current);
+        if (current.hasSameRules(zone) && current.getID().equals(zone.getID())
+                && first == firstDayOfWeek) {
+            return false;
+        }
+        zone = current;
+        firstDayOfWeek = first;
+        generation++;
+        return true;
+    }
+
+    /**
+     * Tells caches built from zone() when to rebuild
+     * Read it before zone(), so a cache can never pair a new generation
+     * with the old zone
+     *
+     * @return Count of changes seen by refresh()
+     */
+    static int generation() {
+        return generation;
+    }
+
+    /**
+     * Get the local day key of a timestamp
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Days since 1970-01-01 in the local time zone
+     * @throws ArithmeticException If the day does not fit an int
+     */
+    static int of(long millis) {
+        return of(millis, zone);
+    }
+
+    /**
+     * Get the day key of a timestamp in a given zone
+     * Lets a long computation keep to one zone across a refresh()
+     *
+     * @param millis Milliseconds since the epoch
+     * @param zone Zone from {@link #zone()}
+     * @return Days since 1970-01-01 in that zone
+     * @throws ArithmeticException If the day does not fit an int
+     */
+    static int of(long millis, TimeZone zone) {
+        return Math.toIntExact(Math.floorDiv(millis + zone.getOffset(millis), MILLIS_PER_DAY));
+    }
+
+    /**
+     * @param millis Milliseconds since the epoch
+     * @return true if the timestamp lies between MIN_MILLIS and MAX_MILLIS
+     */
+    static boolean isSupported(long millis) {
+        return millis >= MIN_MILLIS && millis <= MAX_MILLIS;
+    }
+
+    /**
+     * Get the local hour of a timestamp
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Hour of the day in the local time zone, 0 to 23
+     */
+    static int hourOf(long millis) {
+        return (int) (Math.floorMod(millis + zone.getOffset(millis), MILLIS_PER_DAY) / MILLIS_PER_HOUR);
+    }
+
+    /**
+     * Get the day of the week of a day key
+     *
+     * @param epochDay Day key from {@link #of(long)}
+     * @return 0 for Sunday through 6 for Saturday
+     */
+    static int dayOfWeek(int epochDay) {
+        return Math.floorMod(epochDay + 4, 7); // 1970-01-01 was a Thursday
+    }
+
+    /**
+     * Get the first day of the week containing a day key
+     * The week starts on the locale's first day of the week
+     *
+     * @param epochDay Day key from {@link #of(long)}
+     * @return Day key of the first day of that week
+     */
+    static int firstDayOfWeek(int epochDay) {
+        return epochDay - Math.floorMod(dayOfWeek(epochDay) - firstDayOfWeek, 7);
+    }
+
+    /**
+     * Get the calendar month of a day key
+     * Civil-from-days arithmetic on the proleptic Gregorian calendar
+     *
+     * @param epochDay Day key from {@link #of(long)}
+     * @return Month key: year * 12 + month, with January as 0
+     */
+    static int monthOf(int epochDay) {
+        int z = epochDay + 719468; // days since 0000-03-01
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153; // March is 0
+        int month = shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10;
+        int year = yearOfEra + era * 400 + (month < 2 ? 1 : 0);
+        return year * 12 + month;
+    }
+
+    /**
+     * Get the first day of a calendar month
+     *
+     * @param monthKey Month key from {@link #monthOf(int)}
+     * @return Day key of the 1st of that month
+     */
+    static int firstDayOfMonth(int monthKey) {
+        int month = Math.floorMod(monthKey, 12);
+        int year = Math.floorDiv(monthKey, 12) - (month < 2 ? 1 : 0);
+        int era = Math.floorDiv(year, 400);
+        int yearOfEra = year - era * 400;
+        int shiftedMonth = month < 2 ? month + 10 : month - 2; // March is 0
+        int dayOfYear = (153 * shiftedMonth + 2) / 5;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Get a moment inside a local day
+     * Noon stays inside the day even when a DST shift moves midnight
+     *
+     * @param epochDay Day key from {@link #of(long)}
+     * @return Milliseconds since the epoch at local noon of that day
+     */
+    static long noonOf(int epochDay) {
+        long noon = epochDay * MILLIS_PER_DAY + MILLIS_PER_DAY / 2;
+        return noon - zone.getOffset(noon);
+    }
+
+    /**
+     * @return Copy of the time zone day keys are computed in
+     */
+    static TimeZone zone() {
+        return (TimeZone) zone.clone();
+    }
+
+    /**
+     * @return ID of the time zone day keys are computed in
+     */
+    static String zoneId() {
+        return zone.getID();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.emotilog;
+
+/**
+ * FixedPointFormat writes counts and percentages into caller-owned char arrays.
+ * Design Rationale:
+ * - Binding a summary row used String.valueOf() and String.format(), which
+ *   allocate a formatter, boxes and strings on every bind; integer maths
+ *   into a reused char[] allocates nothing, and TextView.setText(char[],
+ *   int, int) shows the result without making a String
+ * - Percentages are rounded half up to one decimal in fixed point (tenths
+ *   of a percent), matching what "%.1f%%" printed
+ * - The decimal separator is passed in, so callers look up the locale's
+ *   once rather than per call
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.1
+ */
+final class FixedPointFormat {
+    /** Room for any int, sign included */
+    static final int MAX_COUNT_CHARS = 11;
+    /** Room for any part / total ratio, sign, separator and '%' included */
+    static final int MAX_PERCENT_CHARS = 20;
+
+    private FixedPointFormat() {
+    }
+
+    /**
+     * Write a whole number
+     *
+     * @param value Number to write
+     * @param out Receives the digits from index 0; at least MAX_COUNT_CHARS long
+     * @return Number of chars written
+     */
+    static int formatCount(int value, char[] out) {
+        return writeLong(value, out, 0);
+    }
+
+    /**
+     * Write part / total as a percentage with one decimal, e.g. "12.5%"
+     *
+     * @param part Count of the share
+     * @param total Count of the whole; 0 writes "0.0%"
+     * @param decimalSeparator Separator between whole and tenths
+     * @param out Receives the text from index 0; at least MAX_PERCENT_CHARS long
+     * @return Number of chars written
+     */
+    static int formatPercent(int part, int total, char decimalSeparator, char[] out) {
+        long tenths = 0;
+        if (total != 0) {
+            // Round half up in tenths of a percent: (part * 2000 / total + 1) / 2
+            long doubled = part * 2000L / total;
+            tenths = doubled >= 0 ? (doubled + 1) / 2 : -((1 - doubled) / 2);
+        }
+        int length = 0;
+        if (tenths < 0) {
+            out[length++] = '-';
+            tenths = -tenths;
+        }
+        length = writeLong(tenths / 10, out, length);
+        out[length++] = decimalSeparator;
+        out[length++] = (char) ('0' + tenths % 10);
+        out[length++] = '%';
+        return length;
+    }
+
+    /**
+     * Write a number at a position, most significant digit first
+     *
+     * @return Position after the last char written
+     */
+    private static int writeLong(long value, char[] out, int from) {
+        if (value < 0) {
+            out[from++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = from + digits;
+        for (int i = end - 1; i >= from; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.emotilog;
+
+import java.util.Arrays;
+
+/**
+ * HeatMapCube counts logs by emotion, day of week and hour of day.
+ * Design Rationale:
+ * - One flat int[emotions * 7 * 24] holds the whole history, so "when am I
+ *   anxious" is answered without touching a single log or Calendar
+ * - A partial cube per calendar month lets a date range be answered by
+ *   adding up whole months; only months cut by the range need their rows
+ *   looked at, so cost follows the range's edges, not the history's length
+ * - Months are kept sorted in parallel arrays, like DayIndex keeps days,
+ *   and a month is dropped once its last log is deleted
+ * - Maintained by EmotionLogStore on every change; day of week and hour are
+ *   computed with plain arithmetic from the day key and the zone offset
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.1
+ */
+class HeatMapCube {
+    static final int DAYS_PER_WEEK = 7;
+    static final int HOURS = 24;
+    static final int CELLS = DAYS_PER_WEEK * HOURS; // per emotion
+
+    private static final int EMOTIONS = Emotion.values().length;
+    private static final int INITIAL_MONTHS = 16;
+
+    private final int[] total = new int[EMOTIONS * CELLS];
+
+    private int[] months = new int[INITIAL_MONTHS];    // month keys, ascending
+    private int[][] monthCubes = new int[INITIAL_MONTHS][];
+    private int[] monthCounts = new int[INITIAL_MONTHS]; // logs in each month
+    private int monthCount;
+
+    /**
+     * Get the cell of a log within an emotion's 7 x 24 slice
+     *
+     * @param millis Timestamp of the log
+     * @param epochDay Day key of the log
+     * @return Day of week (Sunday = 0) * 24 + local hour
+     */
+    static int cellOf(long millis, int epochDay) {
+        return EpochDays.dayOfWeek(epochDay) * HOURS + EpochDays.hourOf(millis);
+    }
+
+    /**
+     * Count a log in or out of the cube
+     *
+     * @param millis Timestamp of the log
+     * @param epochDay Day key of the log
+     * @param ordinal Emotion ordinal of the log
+     * @param delta 1 for an added log, -1 for a removed one
+     */
+    void add(long millis, int epochDay, int ordinal, int delta) {
+        int index = ordinal * CELLS + cellOf(millis, epochDay);
+        total[index] += delta;
+
+        int month = EpochDays.monthOf(epochDay);
+        int slot = Arrays.binarySearch(months, 0, monthCount, month);
+        if (slot < 0) {
+            if (delta < 0) {
+                return;
+            }
+            slot = -slot - 1;
+            openMonth(slot, month);
+        }
+        monthCubes[slot][index] += delta;
+        monthCounts[slot] += delta;
+        if (monthCounts[slot] == 0) {
+            closeMonth(slot);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(total, 0);
+        Arrays.fill(monthCubes, 0, monthCount, null);
+        monthCount = 0;
+    }
+
+    /**
+     * Add one emotion's slice of the whole history to out
+     *
+     * @param ordinal Emotion ordinal, or -1 for all emotions
+     * @param out Array of at least CELLS counters
+     */
+    void addTotal(int ordinal, int[] out) {
+        addSlices(total, ordinal, out);
+    }
+
+    /**
+     * @return Number of months with logs
+     */
+    int monthCount() {
+        return monthCount;
+    }
+
+    int monthAt(int slot) {
+        return months[slot];
+    }
+
+    /**
+     * Add one emotion's slice of a month to out
+     *
+     * @param slot Month slot, 0 to monthCount() - 1
+     * @param ordinal Emotion ordinal, or -1 for all emotions
+     * @param out Array of at least CELLS counters
+     */
+    void addMonth(int slot, int ordinal, int[] out) {
+        addSlices(monthCubes[slot], ordinal, out);
+    }
+
+    /**
+     * @return First month slot whose month is >= monthKey
+     */
+    int firstMonthFrom(int monthKey) {
+        int slot = Arrays.binarySearch(months, 0, monthCount, monthKey);
+        return slot < 0 ? -slot - 1 : slot;
+    }
+
+    private static void addSlices(int[] cube, int ordinal, int[] out) {
+        int from = ordinal < 0 ? 0 : ordinal;
+        int to = ordinal < 0 ? EMOTIONS : ordinal + 1;
+        for (int e = from; e < to; e++) {
+            int base = e * CELLS;
+            for (int cell = 0; cell < CELLS; cell++) {
+                out[cell] += cube[base + cell];
+            }
+        }
+    }
+
+    private void openMonth(int slot, int month) {
+        if (monthCount == months.length) {
+            int capacity = monthCount * 2;
+            months = Arrays.copyOf(months, capacity);
+            monthCubes = Arrays.copyOf(monthCubes, capacity);
+            monthCounts = Arrays.copyOf(monthCounts, capacity);
+        }
+        int tail = monthCount - slot;
+        System.arraycopy(months, slot, months, slot + 1, tail);
+        System.arraycopy(monthCubes, slot, monthCubes, slot + 1, tail);
+        System.arraycopy(monthCounts, slot, monthCounts, slot + 1, tail);
+        months[slot] = month;
+        monthCubes[slot] = new int[EMOTIONS * CELLS];
+        monthCounts[slot] = 0;
+        monthCount++;
+    }
+
+    private void closeMonth(int slot) {
+        int tail = monthCount - slot - 1;
+        System.arraycopy(months, slot + 1, months, slot, tail);
+        System.arraycopy(monthCubes, slot + 1, monthCubes, slot, tail);
+        System.arraycopy(monthCounts, slot + 1, monthCounts, slot, tail);
+        monthCount--;
+        monthCubes[monthCount] = null;
+    }
+}
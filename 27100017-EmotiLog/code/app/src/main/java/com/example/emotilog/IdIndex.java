@@ -0,0 +1,171 @@
+package com.example.emotilog;
+
+import java.util.Arrays;
+
+/**
+ * IdIndex maps log ids to the timestamps they are stored under.
+ * Design Rationale:
+ * - Open addressing over two parallel long arrays, so lookups box nothing
+ *   and each entry costs 21 to 43 bytes, depending on how recently the
+ *   table doubled, instead of a HashMap node and two boxed Longs
+ * - Maps an id to its timestamp rather than its row: rows move whenever an
+ *   earlier log is inserted or removed, timestamps never do, and the store
+ *   finds the row from the timestamp by binary search
+ * - Linear probing with backward-shift deletion, so removals leave no
+ *   deleted markers behind and lookups never slow down over time
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+class IdIndex {
+    private static final int INITIAL_CAPACITY = 64; // power of two
+    private static final long FREE = 0;
+
+    // FREE marks an empty slot, so id 0 is stored on the side
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    IdIndex() {
+        this(0);
+    }
+
+    /**
+     * @param expected Number of entries to make room for
+     */
+    IdIndex(int expected) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * 3 / 4 < expected) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * Get the value stored for an id
+     *
+     * @param id Id to look up
+     * @param missing Value to return if the id is not present
+     * @return The stored value, or missing
+     */
+    long get(long id, long missing) {
+        if (id == FREE) {
+            return hasZeroKey ? zeroValue : missing;
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(id) & mask; keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return values[slot];
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Store a value for an id, replacing any previous one
+     */
+    void put(long id, long value) {
+        if (id == FREE) {
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == id) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        values[slot] = value;
+        if (++size > keys.length * 3 / 4) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Remove an id
+     *
+     * @return true if the id was present
+     */
+    boolean remove(long id) {
+        if (id == FREE) {
+            if (!hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = false;
+            size--;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (keys[slot] != id) {
+            if (keys[slot] == FREE) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Pull later entries of the probe run back into the hole
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry unless its home lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = FREE;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long id = oldKeys[i];
+            if (id != FREE) {
+                int slot = hash(id) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = id;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of an id; ids share their high bits, so they cannot be
+     * masked directly
+     */
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.emotilog;
+
+import java.util.Arrays;
+
+/**
+ * LogSectionIndex maps the most-recent-first log list onto its days.
+ * Design Rationale:
+ * - One section per local day with logs, newest day first, holding the
+ *   list position of the day's newest log; the same positions
+ *   getLogsPage() and getLogCursor() use
+ * - Two int arrays, so a row's day or a day's first row is a binary search
+ *   or an array read, never a date format or a scan over logs
+ * - Immutable and tagged with the history version it was built at, so
+ *   EmotionLogManager can hand the same index to every caller until the
+ *   next change
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+public class LogSectionIndex {
+    private final int[] days;      // day keys, newest first
+    private final int[] firstRows; // list position of each day's newest log, ascending
+    private final int totalCount;
+    private final long version;
+
+    LogSectionIndex(int[] days, int[] firstRows, int totalCount, long version) {
+        this.days = days;
+        this.firstRows = firstRows;
+        this.totalCount = totalCount;
+        this.version = version;
+    }
+
+    /**
+     * @return Number of days with logs
+     */
+    public int getSectionCount() {
+        return days.length;
+    }
+
+    /**
+     * @return Day key of a section, see {@link EmotionLogManager#getDateForDay(int)}
+     */
+    public int getDay(int section) {
+        return days[section];
+    }
+
+    /**
+     * @return List position of the newest log of a section's day
+     */
+    public int getFirstRow(int section) {
+        return firstRows[section];
+    }
+
+    /**
+     * Find the day a list position belongs to, in O(log days)
+     *
+     * @param row Position in the most-recent-first list, 0 to getTotalCount() - 1
+     * @return Section of that row, or -1 if the index is empty
+     */
+    public int getSectionOfRow(int row) {
+        int section = Arrays.binarySearch(firstRows, row);
+        return section >= 0 ? section : -section - 2;
+    }
+
+    /**
+     * @param row Position in the most-recent-first list
+     * @return Section starting at that row, or -1 if the row continues a day
+     */
+    public int getSectionStartingAt(int row) {
+        int section = Arrays.binarySearch(firstRows, row);
+        return section >= 0 ? section : -1;
+    }
+
+    /**
+     * Find where a day's logs start, in O(log days)
+     *
+     * @param epochDay Day key
+     * @return List position of the newest log of that day or any older
+     * day, or getTotalCount() if there is none
+     */
+    public int getRowOfDay(int epochDay) {
+        // Days are newest first: find the first one not after epochDay
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] > epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < days.length ? firstRows[low] : totalCount;
+    }
+
+    /**
+     * @return Number of logs the index covers
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return History version the index was built at
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.emotilog;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * LogWriteQueue collects taps and writes them to EmotionLogManager in batches.
+ * Design Rationale:
+ * - A tap only creates its EmotionLog and returns; the timestamp and id are
+ *   fixed at the moment of the tap, so batching never changes them
+ * - Taps within WINDOW_MS of the first pending one are written together
+ *   through EmotionLogManager.addLogs(): one lock, one journal flush, one
+ *   change event and so one count update per burst
+ * - Batches are written in tap order by a single writer thread, off the
+ *   main thread, so mashing buttons never blocks the UI
+ * - {@link #flush()} writes whatever is pending at once; screens call it
+ *   when paused so nothing waits on a timer that may never fire
+ * - One queue is owned by EmotionLogManager for the life of the process,
+ *   so taps still pending when a screen is destroyed are written by the
+ *   same writer, in order, and no screen creates or stops a thread
+ * - A tap after {@link #release()} is written at once on the calling
+ *   thread rather than handed to the stopped writer
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+class LogWriteQueue {
+    static final long WINDOW_MS = 250;
+    // A burst this long is written without waiting for the window to end
+    static final int MAX_BATCH = 64;
+
+    private final EmotionLogManager logManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private List<EmotionLog> pending = new ArrayList<>(); // main thread only
+    private boolean released; // main thread only
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    LogWriteQueue(EmotionLogManager logManager) {
+        this.logManager = logManager;
+    }
+
+    /**
+     * Log an emotion as of now; written within WINDOW_MS
+     * Must be called on the main thread
+     *
+     * @param emotion The emotion to log
+     */
+    void enqueue(Emotion emotion) {
+        if (released) {
+            logManager.addLog(new EmotionLog(emotion));
+            return;
+        }
+        pending.add(new EmotionLog(emotion));
+        if (pending.size() >= MAX_BATCH) {
+            flush();
+        } else if (pending.size() == 1) {
+            mainHandler.postDelayed(flushTask, WINDOW_MS);
+        }
+    }
+
+    /**
+     * Hand every pending log to the writer thread now
+     * Must be called on the main thread
+     */
+    void flush() {
+        mainHandler.removeCallbacks(flushTask);
+        if (pending.isEmpty()) {
+            return;
+        }
+        final List<EmotionLog> batch = pending;
+        pending = new ArrayList<>();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                logManager.addLogs(batch);
+            }
+        });
+    }
+
+    /**
+     * Flush and stop the writer; batches already handed over are still
+     * written, and later taps are written by the caller
+     * Must be called on the main thread
+     */
+    void release() {
+        flush();
+        released = true;
+        writer.shutdown();
+    }
+}
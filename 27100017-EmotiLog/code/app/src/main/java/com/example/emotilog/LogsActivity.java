@@ -1,34 +1,126 @@
 package com.example.emotilog;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.MotionEvent;
 import android.view.View;
-import android.widget.ListView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * LogsActivity displays all emotion logs in chronological order.
  * Design Rationale:
  * - Separate activity from MainActivity for clear separation of concerns
- * - Uses ListView with custom adapter for efficient display of many logs
+ * - Uses a RecyclerView whose adapter rebinds only the rows a change
+ *   touched and keeps the scroll position
  * - Shows logs in reverse chronological order (most recent first)
  * - Provides empty state message when no logs exist
  * - Includes back navigation and optional clear all functionality
+ * - Loads logs one page at a time as the user scrolls, so opening the screen
+ *   only reads the most recent page regardless of history size
+ * - Every read runs on a background thread, one at a time, and is applied
+ *   on the main thread; the main thread never waits for the history to load
+ * - A change event re-reads only the days it names; rows of other days are
+ *   kept as they are, and only the re-read run is diffed. Rows and their
+ *   day sections come from one read, so they always match
+ * - A re-read is applied only if every change it picked up was one it
+ *   asked for; otherwise it waits for the missing change's event
+ * - Rows are grouped by day under a sticky header; the day of the top row
+ *   comes from the adapter's LogSectionIndex with one binary search
+ * - A fast-scroll track jumps by day rather than by row; a day beyond the
+ *   loaded rows is shown by reading one page at the day's first row, found
+ *   in the LogSectionIndex, with placeholders for the rows skipped over
+ * - Placeholders near the visible rows are filled a page at a time, the
+ *   same way the list grows at its end
  * Outstanding Issues: None
  *
  * @author Muhammad Bin Tariq
- * @version 0.2
+ * @version 0.6
  */
 public class LogsActivity extends AppCompatActivity {
 
+    private static final int PAGE_SIZE = 50;
+    // Start loading the next page this many rows before the end of the list
+    private static final int PREFETCH_DISTANCE = 10;
+    // Most rows a change event re-reads; the rest of its days become placeholders
+    private static final int MAX_REFRESH_ROWS = 4 * PAGE_SIZE;
+
     private EmotionLogManager logManager;
-    private ListView lvLogs;
+    private RecyclerView rvLogs;
+    private LinearLayoutManager layoutManager;
     private TextView tvEmptyState;
+    private TextView tvStickyHeader;
+    private View fastScrollTrack;
+    private View fastScrollThumb;
     private EmotionLogAdapter adapter;
 
+    // Reads run here one at a time; results are applied on the main thread
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only
+    private final List<EmotionLogChange> pendingChanges = new ArrayList<>(); // not shown yet
+    private long requestedThrough; // newest change version a re-read has asked for
+    private boolean loading;       // a read is in flight
+    private int shownSection = -1;   // section named by the sticky header
+    private int pendingJumpRow = -1; // row to show once it has been loaded
+    private boolean resumed;
+    private boolean released;
+
+    private final EmotionLogManager.OnLogsChangedListener logsChangedListener =
+            new EmotionLogManager.OnLogsChangedListener() {
+                @Override
+                public void onLogsChanged(final EmotionLogChange change) {
+                    runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            pendingChanges.add(change);
+                            if (resumed) {
+                                refreshLogs();
+                            }
+                        }
+                    });
+                }
+            };
+
+    /**
+     * One read of the history: read() runs on the loader thread, then
+     * apply() on the main thread unless the screen has gone
+     */
+    private abstract class PageLoad implements Runnable {
+        abstract void read();
+
+        abstract void apply();
+
+        @Override
+        public void run() {
+            read();
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    loading = false;
+                    if (!released) {
+                        apply();
+                        onLoadApplied();
+                    }
+                }
+            });
+        }
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -47,6 +139,7 @@ public class LogsActivity extends AppCompatActivity {
         initializeViews();
 
         // Load and display logs
+        logManager.addOnLogsChangedListener(logsChangedListener);
         loadLogs();
     }
 
@@ -54,38 +147,347 @@ public class LogsActivity extends AppCompatActivity {
      * Initialize all view components
      */
     private void initializeViews() {
-        lvLogs = findViewById(R.id.lv_logs);
+        rvLogs = findViewById(R.id.rv_logs);
         tvEmptyState = findViewById(R.id.tv_empty_state);
+        tvStickyHeader = findViewById(R.id.tv_sticky_header);
+        fastScrollTrack = findViewById(R.id.fast_scroll_track);
+        fastScrollThumb = findViewById(R.id.fast_scroll_thumb);
+
+        // One adapter for the life of the screen; reloads are diffed into it
+        layoutManager = new LinearLayoutManager(this);
+        adapter = new EmotionLogAdapter();
+        rvLogs.setLayoutManager(layoutManager);
+        rvLogs.setHasFixedSize(true);
+        rvLogs.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        rvLogs.setAdapter(adapter);
+
+        // Load the next page as the user nears the end of the loaded rows
+        rvLogs.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                loadMoreIfNeeded();
+                updateStickyHeader();
+            }
+        });
+
+        // Dragging along the track picks a day in proportion to its position
+        fastScrollTrack.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View v, MotionEvent event) {
+                int action = event.getActionMasked();
+                if (action != MotionEvent.ACTION_DOWN && action != MotionEvent.ACTION_MOVE) {
+                    return action == MotionEvent.ACTION_UP;
+                }
+                LogSectionIndex sections = adapter.getSections();
+                if (sections == null || sections.getSectionCount() == 0 || v.getHeight() == 0) {
+                    return false;
+                }
+                int count = sections.getSectionCount();
+                int section = (int) (event.getY() / v.getHeight() * count);
+                jumpToSection(sections, Math.max(0, Math.min(count - 1, section)));
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Name the day of the top visible row in the sticky header and move the
+     * fast-scroll thumb to it
+     * One binary search over the days; nothing is formatted unless the day changed
+     */
+    private void updateStickyHeader() {
+        LogSectionIndex sections = adapter.getSections();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        if (sections == null || sections.getSectionCount() == 0
+                || first == RecyclerView.NO_POSITION) {
+            tvStickyHeader.setVisibility(View.GONE);
+            return;
+        }
+        showSection(sections, sections.getSectionOfRow(first));
+    }
+
+    private void showSection(LogSectionIndex sections, int section) {
+        tvStickyHeader.setVisibility(View.VISIBLE);
+        if (section == shownSection) {
+            return;
+        }
+        shownSection = section;
+        tvStickyHeader.setText(EmotionLogFormatter.formatDay(sections.getDay(section)));
+
+        int count = sections.getSectionCount();
+        float fraction = count > 1 ? (float) section / (count - 1) : 0;
+        fastScrollThumb.setTranslationY(
+                fraction * (fastScrollTrack.getHeight() - fastScrollThumb.getHeight()));
+    }
 
-        // Set up the empty state view
-        lvLogs.setEmptyView(tvEmptyState);
+    /**
+     * Scroll so a day's newest log is at the top
+     *
+     * @param sections Sections of the rows shown
+     * @param section Day to show
+     */
+    private void jumpToSection(LogSectionIndex sections, int section) {
+        showSection(sections, section);
+        jumpToRow(sections.getFirstRow(section));
+    }
+
+    /**
+     * Scroll a row to the top, first loading the page at it if the list
+     * does not reach it yet
+     * Placeholders scrolled into view are filled by loadMoreIfNeeded()
+     */
+    private void jumpToRow(int row) {
+        if (row < adapter.getItemCount()) {
+            pendingJumpRow = -1;
+            layoutManager.scrollToPositionWithOffset(row, 0);
+            return;
+        }
+        if (!loading && !hasMore()) {
+            pendingJumpRow = -1; // the list ended before the row
+            return;
+        }
+        pendingJumpRow = row; // scrolled to once the page is shown
+        if (!loading) {
+            appendPage(row, PAGE_SIZE);
+        }
     }
 
     /**
-     * Load logs from manager and display them
+     * Re-read every row shown, at least one page, and diff them into the list
+     * Used for the first load and after a clear, when no day range applies
      */
     private void loadLogs() {
-        List<EmotionLog> logs = logManager.getAllLogs();
+        final int loaded = adapter.getItemCount();
+        final List<EmotionLog> oldRows = adapter.copyLogs(0, loaded);
+        requestedThrough = newestPendingVersion();
+        startLoad(new PageLoad() {
+            private EmotionLogPage page;
+            private DiffUtil.DiffResult diff;
+
+            @Override
+            void read() {
+                page = logManager.getLogsPage(0, Math.max(PAGE_SIZE, loaded));
+                diff = EmotionLogAdapter.diff(oldRows, page.getLogs());
+            }
+
+            @Override
+            void apply() {
+                adapter.replaceLogs(0, loaded, page.getLogs(), diff, page.getSections());
+                dropShownChanges(page.getVersion());
+            }
+        });
+    }
 
-        if (logs.isEmpty()) {
-            tvEmptyState.setVisibility(View.VISIBLE);
-            lvLogs.setVisibility(View.GONE);
+    /**
+     * Bring the list up to date with the pending change events
+     * Only the days the changes name are re-read; a clear or the end of
+     * startup re-reads the rows shown
+     */
+    private void refreshLogs() {
+        if (loading) {
+            return; // picked up once the read in flight is applied
+        }
+        LogSectionIndex shown = adapter.getSections();
+        if (shown == null) {
+            return; // the first load is still to come
+        }
+        dropShownChanges(shown.getVersion());
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+        int newest = Integer.MIN_VALUE;
+        int oldest = Integer.MAX_VALUE;
+        for (EmotionLogChange change : pendingChanges) {
+            newest = Math.max(newest, change.getNewestDay());
+            oldest = Math.min(oldest, change.getOldestDay());
+        }
+        if (newest == Integer.MAX_VALUE || oldest == Integer.MIN_VALUE) {
+            loadLogs();
         } else {
-            tvEmptyState.setVisibility(View.GONE);
-            lvLogs.setVisibility(View.VISIBLE);
+            refreshDays(shown, newest, oldest);
+        }
+    }
 
-            // Create and set adapter
-            adapter = new EmotionLogAdapter(this, logs);
-            lvLogs.setAdapter(adapter);
+    /**
+     * Re-read the rows of a range of days and replace just those rows
+     * Rows of newer days keep their positions; rows of older days are
+     * reused as they are and only shift. A range longer than
+     * MAX_REFRESH_ROWS is read only that far, the rest left as placeholders
+     *
+     * @param shown Sections of the rows shown
+     * @param newest Newest changed day
+     * @param oldest Oldest changed day
+     */
+    private void refreshDays(LogSectionIndex shown, final int newest, final int oldest) {
+        final long shownVersion = shown.getVersion();
+        final long[] asked = new long[pendingChanges.size()];
+        for (int i = 0; i < asked.length; i++) {
+            asked[i] = pendingChanges.get(i).getVersion();
         }
+        requestedThrough = newestPendingVersion();
+
+        final int loaded = adapter.getItemCount();
+        final int start = Math.min(shown.getRowOfDay(newest), loaded);
+        final int rangeEnd = shown.getRowOfDay(oldest - 1);
+        final boolean pastLoaded = rangeEnd >= loaded; // no rows of older days shown
+        final int end = Math.min(rangeEnd, loaded);
+        final List<EmotionLog> oldRun = adapter.copyLogs(start, end);
+        final int limit = start < loaded ? MAX_REFRESH_ROWS : 0;
+
+        startLoad(new PageLoad() {
+            private EmotionLogPage page;
+            private List<EmotionLog> newRun;
+            private DiffUtil.DiffResult diff;
+
+            @Override
+            void read() {
+                page = logManager.getDaysPage(newest, oldest, limit);
+                // Rows past the limit stay placeholders, so older days keep
+                // their positions; past the list's end, it keeps its length
+                int length = pastLoaded
+                        ? Math.max(0, Math.min(loaded, page.getTotalCount()) - start)
+                        : page.getSections().getRowOfDay(oldest - 1) - start;
+                List<EmotionLog> rows = page.getLogs();
+                newRun = new ArrayList<>(rows.subList(0, Math.min(rows.size(), length)));
+                while (newRun.size() < length) {
+                    newRun.add(null);
+                }
+                diff = EmotionLogAdapter.diff(oldRun, newRun);
+            }
+
+            @Override
+            void apply() {
+                if (!includesAll(asked, shownVersion, page.getVersion())) {
+                    return; // read a change whose event has not arrived yet
+                }
+                adapter.replaceLogs(start, end, newRun, diff, page.getSections());
+                dropShownChanges(page.getVersion());
+            }
+        });
     }
 
     /**
-     * Refresh the logs display
-     * Called when returning from other activities or after data changes
+     * Read the page at an offset; it is appended, with placeholders before
+     * it if it starts beyond the list, or fills the placeholders it covers
+     * Dropped if the history changed while it was read, since the change's
+     * event brings a refresh first
      */
-    private void refreshLogs() {
-        loadLogs();
+    private void appendPage(final int offset, final int limit) {
+        startLoad(new PageLoad() {
+            private EmotionLogPage page;
+
+            @Override
+            void read() {
+                page = logManager.getLogsPage(offset, limit);
+            }
+
+            @Override
+            void apply() {
+                LogSectionIndex shown = adapter.getSections();
+                if (shown == null || page.getVersion() != shown.getVersion()) {
+                    return;
+                }
+                if (offset < adapter.getItemCount()) {
+                    adapter.fillLogs(offset, page.getLogs());
+                } else {
+                    adapter.appendLogsAt(offset, page.getLogs(), page.getSections());
+                }
+            }
+        });
+    }
+
+    private void startLoad(PageLoad load) {
+        loading = true;
+        loader.execute(load);
+    }
+
+    /**
+     * Follow up on a read: show the result, then run whatever waited for it
+     */
+    private void onLoadApplied() {
+        updateEmptyState();
+        shownSection = -1; // sections may have been renumbered
+        updateStickyHeader();
+        if (resumed && newestPendingVersion() > requestedThrough) {
+            refreshLogs();
+        } else if (pendingJumpRow >= 0) {
+            jumpToRow(pendingJumpRow);
+        } else {
+            loadMoreIfNeeded();
+        }
+    }
+
+    /**
+     * @return true if every version after shownVersion up to readVersion is in asked
+     */
+    private static boolean includesAll(long[] asked, long shownVersion, long readVersion) {
+        int found = 0;
+        for (long version : asked) {
+            if (version > shownVersion && version <= readVersion) {
+                found++;
+            }
+        }
+        // Each change bumps the version by one
+        return found == readVersion - shownVersion;
+    }
+
+    private void dropShownChanges(long shownVersion) {
+        Iterator<EmotionLogChange> changes = pendingChanges.iterator();
+        while (changes.hasNext()) {
+            if (changes.next().getVersion() <= shownVersion) {
+                changes.remove();
+            }
+        }
+    }
+
+    private long newestPendingVersion() {
+        long newest = 0;
+        for (EmotionLogChange change : pendingChanges) {
+            newest = Math.max(newest, change.getVersion());
+        }
+        return newest;
+    }
+
+    /**
+     * @return true if logs exist beyond the rows loaded
+     */
+    private boolean hasMore() {
+        LogSectionIndex shown = adapter.getSections();
+        return shown != null && adapter.getItemCount() < shown.getTotalCount();
+    }
+
+    /**
+     * Show the empty state message instead of the list when there are no logs
+     * Nothing is shown either way until the first page arrives
+     */
+    private void updateEmptyState() {
+        boolean empty = adapter.getSections() != null && adapter.getItemCount() == 0;
+        tvEmptyState.setVisibility(empty ? View.VISIBLE : View.GONE);
+        rvLogs.setVisibility(empty ? View.GONE : View.VISIBLE);
+    }
+
+    /**
+     * Fill placeholders near the visible rows, or append the next page once
+     * the user nears the end of the loaded rows
+     */
+    private void loadMoreIfNeeded() {
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        if (loading || firstVisible == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int count = adapter.getItemCount();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        int from = Math.max(0, firstVisible - PREFETCH_DISTANCE);
+        int to = Math.min(count, lastVisible + PREFETCH_DISTANCE + 1);
+        for (int row = from; row < to; row++) {
+            if (adapter.isPlaceholder(row)) {
+                appendPage(row, PAGE_SIZE);
+                return;
+            }
+        }
+        if (hasMore() && lastVisible >= count - PREFETCH_DISTANCE) {
+            appendPage(count, PAGE_SIZE);
+        }
     }
 
     /**
@@ -98,11 +500,26 @@ public class LogsActivity extends AppCompatActivity {
     }
 
     /**
-     * Refresh logs when activity resumes
+     * Refresh logs when activity resumes, if they changed while away
      */
     @Override
     protected void onResume() {
         super.onResume();
+        resumed = true;
         refreshLogs();
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onPause() {
+        resumed = false;
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        released = true;
+        logManager.removeOnLogsChangedListener(logsChangedListener);
+        loader.shutdownNow();
+        super.onDestroy();
+    }
+}
@@ -4,7 +4,6 @@ import android.animation.ArgbEvaluator;
 import android.animation.ValueAnimator;
 import android.content.Intent;
 import android.graphics.Color;
-import android.graphics.drawable.GradientDrawable;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
@@ -28,9 +27,19 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
  *    smooth rather than an instant snap.
  *  - Button shape is a plain rounded GradientDrawable — no StateListDrawable
  *    color swap, so the only visual change on press is the scale animation.
+ *    The shapes come from EmotionDrawables and the colors are pre-parsed
+ *    by Emotion, so neither is rebuilt per button or per tap.
+ *  - The log count is pushed by EmotionLogManager change events instead of
+ *    being re-read after every tap.
+ *  - Taps go through the manager's LogWriteQueue: a burst of taps is
+ *    written off the main thread as one batch, with one change event and
+ *    one count update. Pending taps are flushed when the screen is paused;
+ *    the queue itself outlives the screen.
+ *  - One Toast is reused, so a burst of taps updates it instead of
+ *    queueing a toast per tap.
  *
  * @author Muhammad Bin Tariq
- * @version 0.5
+ * @version 0.8
  */
 public class MainActivity extends AppCompatActivity {
 
@@ -40,9 +49,11 @@ public class MainActivity extends AppCompatActivity {
     private static final int BG_FADE_MS     = 400;   // background cross-fade
 
     // Neutral starting background
-    private static final int COLOR_DEFAULT_BG = Color.parseColor("#F5F5F5");
+    private static final int COLOR_DEFAULT_BG = 0xFFF5F5F5;
 
     private EmotionLogManager logManager;
+    private LogWriteQueue      writeQueue;
+    private Toast              loggedToast;
     private View               rootLayout;   // target for background animation
     private TextView           tvLogCount;
     private Button[]           emotionButtons;
@@ -50,6 +61,19 @@ public class MainActivity extends AppCompatActivity {
     // Tracks current background color so each animation starts from it
     private int currentBgColor = COLOR_DEFAULT_BG;
 
+    // Manager version the displayed count belongs to
+    private long shownVersion = -1;
+
+    private final EmotionLogManager.OnLogsChangedListener logsChangedListener =
+            new EmotionLogManager.OnLogsChangedListener() {
+                @Override
+                public void onLogsChanged(final EmotionLogChange change) {
+                    runOnUiThread(new Runnable() {
+                        @Override public void run() { showLogCount(change); }
+                    });
+                }
+            };
+
     // -------------------------------------------------------------------------
     // Lifecycle
     // -------------------------------------------------------------------------
@@ -60,17 +84,35 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         logManager = EmotionLogManager.getInstance(this);
+        writeQueue = logManager.getWriteQueue();
 
         initializeViews();
         setupEmotionButtons();
         setupNavigationButtons();
         updateLogCount();
+        logManager.addOnLogsChangedListener(logsChangedListener);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        updateLogCount();
+        // Events keep the count current; only re-read if one was missed
+        if (logManager.getVersion() != shownVersion) {
+            updateLogCount();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        // Don't leave taps waiting on the batching window once we leave
+        writeQueue.flush();
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        logManager.removeOnLogsChangedListener(logsChangedListener);
+        super.onDestroy();
     }
 
     // -------------------------------------------------------------------------
@@ -109,7 +151,7 @@ public class MainActivity extends AppCompatActivity {
 
             button.setText(emotion.getFormattedDisplay());
             button.setTextColor(Color.WHITE);
-            button.setBackground(buildRoundedDrawable(emotion));
+            button.setBackground(EmotionDrawables.roundedButton(emotion));
 
             button.setOnClickListener(new View.OnClickListener() {
                 @Override
@@ -180,7 +222,7 @@ public class MainActivity extends AppCompatActivity {
      * @param emotion Source of the target background tint
      */
     private void animateBackground(final Emotion emotion) {
-        final int targetColor = Color.parseColor(emotion.getBackgroundTint());
+        final int targetColor = emotion.getBackgroundTintArgb();
 
         if (targetColor == currentBgColor) return; // already there, skip
 
@@ -205,41 +247,39 @@ public class MainActivity extends AppCompatActivity {
         animator.start();
     }
 
-    // -------------------------------------------------------------------------
-    // Drawable factory
-    // -------------------------------------------------------------------------
-
-    /**
-     * Builds a plain rounded rectangle GradientDrawable for a button.
-     * Corner radius of 60px produces a pill-like shape at typical densities.
-     *
-     * @param emotion Source of the fill color
-     * @return Ready-to-use GradientDrawable
-     */
-    private GradientDrawable buildRoundedDrawable(Emotion emotion) {
-        GradientDrawable shape = new GradientDrawable();
-        shape.setShape(GradientDrawable.RECTANGLE);
-        shape.setCornerRadius(60f);
-        shape.setColor(Color.parseColor(emotion.getColorCode()));
-        return shape;
-    }
-
     // -------------------------------------------------------------------------
     // The actual app logic
     // -------------------------------------------------------------------------
 
     private void logEmotion(Emotion emotion) {
-        logManager.addLog(emotion);
-        updateLogCount();
-        Toast.makeText(this,
-                emotion.getEmoji() + " " + emotion.getDisplayName() + " logged!",
-                Toast.LENGTH_SHORT).show();
+        writeQueue.enqueue(emotion); // the batch's change event updates the count
+        String message = emotion.getEmoji() + " " + emotion.getDisplayName() + " logged!";
+        if (loggedToast == null) {
+            loggedToast = Toast.makeText(this, message, Toast.LENGTH_SHORT);
+        } else {
+            loggedToast.setText(message);
+        }
+        loggedToast.show();
     }
 
     private void updateLogCount() {
+        shownVersion = logManager.getVersion();
         tvLogCount.setText("Total Logs: " + logManager.getLogCount());
     }
 
+    /**
+     * Show the count carried by a change event
+     * Events from other threads can arrive out of order, so older ones are
+     * ignored
+     *
+     * @param change The change just published by the manager
+     */
+    private void showLogCount(EmotionLogChange change) {
+        if (change.getVersion() <= shownVersion) return;
+        shownVersion = change.getVersion();
+        tvLogCount.setText("Total Logs: " + change.getTotalCount());
+    }
+
     private void navigateToLogs() {
         startActivity(new Intent(this, LogsActivity.class));
     }
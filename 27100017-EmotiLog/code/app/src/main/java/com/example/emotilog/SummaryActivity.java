@@ -10,13 +10,9 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 
 /**
  * SummaryActivity displays emotion count summaries for a selected date.
@@ -27,9 +23,14 @@ import java.util.Map;
  * - Uses ListView to display emotion counts in descending order
  * - Shows total count for the selected date
  * - Separate activity maintains single responsibility principle
+ * - Recomputes only when a change event touches the selected date
+ * - Summaries are computed by a SummaryLoader off the main thread; picking a
+ *   new date supersedes the one still loading
+ * - The selected date is formatted by EmotionLogFormatter, whose formatters
+ *   are reused and follow time zone changes
  *
  * @author Muhammad Bin Tariq
- * @version 0.2
+ * @version 0.4
  */
 public class SummaryActivity extends AppCompatActivity {
 
@@ -40,6 +41,29 @@ public class SummaryActivity extends AppCompatActivity {
     private Button btnSelectDate;
     private Date selectedDate;
     private EmotionSummaryAdapter adapter;
+    private SummaryLoader summaryLoader;
+
+    private boolean stale;    // logs of the selected date changed since shown
+    private boolean resumed;
+
+    private final EmotionLogManager.OnLogsChangedListener logsChangedListener =
+            new EmotionLogManager.OnLogsChangedListener() {
+                @Override
+                public void onLogsChanged(final EmotionLogChange change) {
+                    runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!change.affectsDate(selectedDate)) {
+                                return; // another day changed, nothing to redo
+                            }
+                            stale = true;
+                            if (resumed) {
+                                updateSummary();
+                            }
+                        }
+                    });
+                }
+            };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -54,6 +78,12 @@ public class SummaryActivity extends AppCompatActivity {
 
         // Initialize log manager
         logManager = EmotionLogManager.getInstance(this);
+        summaryLoader = new SummaryLoader(logManager, new SummaryLoader.Callback() {
+            @Override
+            public void onSummaryLoaded(DaySummary summary) {
+                showSummary(summary);
+            }
+        });
 
         // Initialize views
         initializeViews();
@@ -63,6 +93,7 @@ public class SummaryActivity extends AppCompatActivity {
 
         // Display summary for today
         updateSummary();
+        logManager.addOnLogsChangedListener(logsChangedListener);
     }
 
     /**
@@ -111,30 +142,29 @@ public class SummaryActivity extends AppCompatActivity {
 
     /**
      * Update the summary display for the selected date
+     * Shows the date at once and requests the counts in the background
      */
     private void updateSummary() {
+        stale = false;
+
         // Update selected date display
-        SimpleDateFormat sdf = new SimpleDateFormat("EEEE, MMM dd, yyyy", Locale.getDefault());
-        tvSelectedDate.setText(sdf.format(selectedDate));
+        tvSelectedDate.setText(EmotionLogFormatter.formatLongDate(selectedDate.getTime()));
+
+        summaryLoader.load(EpochDays.of(selectedDate.getTime()));
+    }
 
-        // Get summary data
-        Map<Emotion, Integer> summary = logManager.getSummaryForDate(selectedDate);
-        int totalCount = logManager.getTotalLogsForDate(selectedDate);
+    /**
+     * Show a summary delivered by the loader
+     *
+     * @param summary Counts of the selected date, already ranked
+     */
+    private void showSummary(DaySummary summary) {
+        int totalCount = summary.getTotalCount();
+        List<EmotionSummaryItem> summaryItems = summary.getItems();
 
         // Update total count
         tvTotalCount.setText("Total Logs: " + totalCount);
 
-        // Convert summary to list for adapter
-        List<EmotionSummaryItem> summaryItems = new ArrayList<>();
-        for (Map.Entry<Emotion, Integer> entry : summary.entrySet()) {
-            if (entry.getValue() > 0) { // Only show emotions that were logged
-                summaryItems.add(new EmotionSummaryItem(entry.getKey(), entry.getValue()));
-            }
-        }
-
-        // Sort by count (descending)
-        summaryItems.sort((a, b) -> b.getCount() - a.getCount());
-
         // Update ListView
         if (summaryItems.isEmpty()) {
             // Show empty state
@@ -159,12 +189,28 @@ public class SummaryActivity extends AppCompatActivity {
     }
 
     /**
-     * Refresh summary when activity resumes
+     * Refresh summary when activity resumes, if the selected date changed
      */
     @Override
     protected void onResume() {
         super.onResume();
-        updateSummary();
+        resumed = true;
+        if (stale) {
+            updateSummary();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        resumed = false;
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        logManager.removeOnLogsChangedListener(logsChangedListener);
+        summaryLoader.release();
+        super.onDestroy();
     }
 
     /**
@@ -0,0 +1,68 @@
+package com.example.emotilog;
+
+/**
+ * SummaryCacheStats is a point-in-time reading of the day summary cache.
+ * Design Rationale:
+ * - Counters are copied out together, so a metrics report never mixes
+ *   values from before and after a lookup
+ * - Counters only grow for the life of the process; rates come from the
+ *   difference between two readings
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.1
+ */
+public class SummaryCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final int capacity;
+
+    SummaryCacheStats(long hits, long misses, long evictions, int size, int capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return Lookups answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Lookups that had to count the day
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Days dropped to make room, not counting invalidations
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Days cached right now
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Share of lookups answered from the cache, 0 to 1
+     */
+    public float getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (float) hits / lookups;
+    }
+}
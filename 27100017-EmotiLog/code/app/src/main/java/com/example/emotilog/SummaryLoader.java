@@ -0,0 +1,104 @@
+package com.example.emotilog;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * SummaryLoader computes day summaries off the main thread for one screen.
+ * Design Rationale:
+ * - Counting and ranking run on a background thread, which is also where a
+ *   first query waits for the history to finish loading; the main thread
+ *   only receives a finished DaySummary
+ * - Latest request wins: a new load cancels the one still queued and marks
+ *   any running one as superseded, so flicking through dates never queues
+ *   a backlog of summaries nobody will see
+ * - Summaries come from EmotionLogManager's day summary cache; going back
+ *   to a date that has not changed is answered at once without leaving the
+ *   main thread
+ * - Results are delivered through a main-thread Handler, and nothing is
+ *   delivered after {@link #release()}
+ *
+ * @author Muhammad Bin Tariq
+ * @version 0.2
+ */
+class SummaryLoader {
+    /**
+     * Receives summaries on the main thread
+     */
+    interface Callback {
+        void onSummaryLoaded(DaySummary summary);
+    }
+
+    private final EmotionLogManager logManager;
+    private final Callback callback;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Future<?> pending; // main thread only
+
+    // Id of the latest request; older requests drop their results
+    private volatile long generation;
+    private volatile boolean released;
+
+    SummaryLoader(EmotionLogManager logManager, Callback callback) {
+        this.logManager = logManager;
+        this.callback = callback;
+    }
+
+    /**
+     * Load the summary of a day, replacing any load still in progress
+     * Must be called on the main thread; a cached summary is delivered before
+     * this returns, anything else later through the callback
+     *
+     * @param epochDay Day key of the day to summarise
+     */
+    void load(final int epochDay) {
+        if (released) {
+            return; // a change event queued before the screen went away
+        }
+        final long request = ++generation;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+
+        DaySummary cached = logManager.peekDaySummary(epochDay);
+        if (cached != null) {
+            callback.onSummaryLoaded(cached);
+            return;
+        }
+
+        pending = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (request != generation) {
+                    return; // superseded before it started
+                }
+                final DaySummary summary =
+                        logManager.getDaySummary(EmotionLogManager.getDateForDay(epochDay));
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!released && request == generation) {
+                            pending = null;
+                            callback.onSummaryLoaded(summary);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stop loading; the loader cannot be used afterwards
+     */
+    void release() {
+        released = true;
+        generation++;
+        executor.shutdownNow();
+    }
+}
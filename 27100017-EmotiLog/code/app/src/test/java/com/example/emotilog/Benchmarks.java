@@ -0,0 +1,79 @@
+package com.example.emotilog;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Small timing harness for the *Benchmark test classes
+ * Benchmarks are skipped unless the emotilog.benchmarks system property is
+ * true, which ./gradlew testDebugUnitTest -Pbenchmarks sets. Each workload
+ * is warmed up until the JIT has compiled it, then timed over several
+ * rounds; the median is printed, so one GC pause does not skew the result
+ */
+final class Benchmarks {
+    static final boolean ENABLED = Boolean.getBoolean("emotilog.benchmarks");
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    // Results are folded in here so the JIT cannot drop the measured work
+    static volatile long sink;
+
+    /**
+     * Work timed by {@link #measure}
+     */
+    abstract static class Workload {
+        /**
+         * Prepare a round; not timed
+         */
+        void setUp() throws Exception {
+        }
+
+        /**
+         * @return Any value computed from the work
+         */
+        abstract long run() throws Exception;
+    }
+
+    private Benchmarks() {
+    }
+
+    static void assumeEnabled() {
+        assumeTrue("Benchmarks run with -Pbenchmarks", ENABLED);
+    }
+
+    /**
+     * Time a workload and print the median time per operation
+     *
+     * @param name Printed with the result
+     * @param operations Operations done by one run, to report the time of one
+     * @param workload Work to time
+     * @return Median microseconds per operation
+     */
+    static double measure(String name, int operations, Workload workload) throws Exception {
+        return measure(name, operations, WARMUP_ROUNDS, ROUNDS, workload);
+    }
+
+    static double measure(String name, int operations, int warmups, int rounds,
+                          Workload workload) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            workload.setUp();
+            sink += workload.run();
+        }
+        long[] times = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            workload.setUp();
+            long start = System.nanoTime();
+            sink += workload.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        double median = times[rounds / 2] / 1000.0 / operations;
+        double best = times[0] / 1000.0 / operations;
+        System.out.println(String.format(Locale.ROOT, "%-56s %12.3f us/op (best %.3f, %d rounds)",
+                name, median, best, rounds));
+        return median;
+    }
+}
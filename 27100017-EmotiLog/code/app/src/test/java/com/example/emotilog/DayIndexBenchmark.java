@@ -0,0 +1,155 @@
+package com.example.emotilog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Times the DayIndex queries behind the stats screens over five dense
+ * years of history, against recounting the timestamp column, and the cost
+ * of keeping the index current when a log is added today or years back
+ * Run with ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class DayIndexBenchmark {
+    private static final int YEARS = 5;
+    private static final int DAYS = YEARS * 365 + 1;
+    private static final int LOGS_PER_DAY = 50;
+    private static final int QUERIES = 1000;
+
+    private final Random random = new Random(16);
+    private EmotionLogStore store;
+    private int firstDay;
+    private int today;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+        today = EpochDays.of(1700000000000L);
+        firstDay = today - DAYS + 1;
+        store = new EmotionLogStore();
+        Emotion[] emotions = Emotion.values();
+        long step = EpochDays.MILLIS_PER_DAY / LOGS_PER_DAY;
+        for (int day = firstDay; day <= today; day++) {
+            long start = EpochDays.noonOf(day) - EpochDays.MILLIS_PER_DAY / 2 + step / 2;
+            for (int i = 0; i < LOGS_PER_DAY; i++) {
+                store.insert(LogIdGenerator.next(), start + i * step,
+                        emotions[random.nextInt(emotions.length)]);
+            }
+        }
+    }
+
+    @Test
+    public void rangeQueries() throws Exception {
+        final int[] counts = new int[Emotion.values().length];
+        final int[] windows = {7, 30, 365, DAYS};
+        for (final int window : windows) {
+            Benchmarks.measure("index count of a " + window + "-day window", QUERIES,
+                    new Benchmarks.Workload() {
+                        @Override
+                        long run() {
+                            long total = 0;
+                            for (int i = 0; i < QUERIES; i++) {
+                                int from = firstDay + random.nextInt(DAYS - window + 1);
+                                total += store.countRange(from, from + window - 1, counts);
+                            }
+                            return total;
+                        }
+                    });
+        }
+
+        final long[] timestamps = store.copyTimestamps();
+        final byte[] emotions = store.copyEmotions();
+        Benchmarks.measure("recount of a 30-day window from the columns", 10,
+                new Benchmarks.Workload() {
+                    @Override
+                    long run() {
+                        long total = 0;
+                        for (int i = 0; i < 10; i++) {
+                            int from = firstDay + random.nextInt(DAYS - 29);
+                            for (int row = 0; row < timestamps.length; row++) {
+                                int day = EpochDays.of(timestamps[row]);
+                                if (day >= from && day <= from + 29) {
+                                    counts[emotions[row]]++;
+                                    total++;
+                                }
+                            }
+                        }
+                        return total;
+                    }
+                });
+    }
+
+    @Test
+    public void streaks() throws Exception {
+        final Emotion[] emotions = Emotion.values();
+        Benchmarks.measure("index streak ending on a day", QUERIES, new Benchmarks.Workload() {
+            @Override
+            long run() {
+                long total = 0;
+                for (int i = 0; i < QUERIES; i++) {
+                    total += store.streakEndingOn(firstDay + random.nextInt(DAYS),
+                            emotions[i % emotions.length]);
+                }
+                return total;
+            }
+        });
+        Benchmarks.measure("index longest streak over " + YEARS + " years", QUERIES,
+                new Benchmarks.Workload() {
+                    @Override
+                    long run() {
+                        long total = 0;
+                        for (int i = 0; i < QUERIES; i++) {
+                            total += store.longestStreak(firstDay, today, emotions[i % emotions.length]);
+                        }
+                        return total;
+                    }
+                });
+    }
+
+    @Test
+    public void keepingTheIndexCurrent() throws Exception {
+        final long[] added = new long[QUERIES];
+        Benchmarks.measure("insert today, " + YEARS + " years indexed", QUERIES,
+                new Benchmarks.Workload() {
+                    @Override
+                    void setUp() {
+                        removeAdded(added);
+                    }
+
+                    @Override
+                    long run() {
+                        long now = EpochDays.noonOf(today);
+                        for (int i = 0; i < QUERIES; i++) {
+                            added[i] = LogIdGenerator.next();
+                            store.insert(added[i], now + i, Emotion.HAPPY);
+                        }
+                        return store.size();
+                    }
+                });
+        removeAdded(added);
+        Benchmarks.measure("insert " + (YEARS - 1) + " years back, " + YEARS + " years indexed",
+                QUERIES, new Benchmarks.Workload() {
+                    @Override
+                    void setUp() {
+                        removeAdded(added);
+                    }
+
+                    @Override
+                    long run() {
+                        long then = EpochDays.noonOf(firstDay + 365);
+                        for (int i = 0; i < QUERIES; i++) {
+                            added[i] = LogIdGenerator.next();
+                            store.insert(added[i], then + i, Emotion.SAD);
+                        }
+                        return store.size();
+                    }
+                });
+        removeAdded(added);
+    }
+
+    private void removeAdded(long[] added) {
+        long[] times = new long[added.length];
+        store.removeAll(added.clone(), times);
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Checks the range, rolling-window and streak answers of DayIndex against
+ * a plain recount of every log, after random inserts, deletes, batch
+ * deletes and merges
+ * The index is driven through EmotionLogStore, which keeps it in step with
+ * the rows it describes
+ */
+public class DayIndexTest {
+    private static final int EMOTIONS = Emotion.values().length;
+    private static final int FIRST_DAY = 19000;
+    private static final int DAYS = 120;
+    private static final long SPREAD = 6 * EpochDays.MILLIS_PER_HOUR;
+
+    private final Random random = new Random(16);
+    private final EmotionLogStore store = new EmotionLogStore();
+    // What the store should hold: id to its day and emotion ordinal
+    private final Map<Long, int[]> oracle = new HashMap<>();
+    private final List<Long> ids = new ArrayList<>();
+
+    @Test
+    public void rangesMatchARecountAfterRandomEdits() {
+        for (int round = 0; round < 60; round++) {
+            edit(200);
+            for (int query = 0; query < 40; query++) {
+                int from = FIRST_DAY - 5 + random.nextInt(DAYS + 10);
+                int to = from + random.nextInt(DAYS / 2) - 5; // sometimes empty
+                assertRange(from, to);
+            }
+        }
+    }
+
+    @Test
+    public void rollingWindowsMatchARecount() {
+        for (int round = 0; round < 20; round++) {
+            edit(300);
+            int window = 1 + random.nextInt(30);
+            for (int last = FIRST_DAY - 1; last <= FIRST_DAY + DAYS; last++) {
+                assertRange(last - window + 1, last);
+            }
+        }
+    }
+
+    @Test
+    public void streaksMatchARecount() {
+        for (int round = 0; round < 40; round++) {
+            edit(250);
+            TreeMap<Integer, int[]> counts = countByDay();
+            for (int e = 0; e < EMOTIONS; e++) {
+                Emotion emotion = Emotion.values()[e];
+                for (int day = FIRST_DAY - 1; day <= FIRST_DAY + DAYS; day++) {
+                    assertEquals("Streak of " + emotion + " ending on " + day,
+                            streakEndingOn(counts, day, e), store.streakEndingOn(day, emotion));
+                }
+                for (int query = 0; query < 20; query++) {
+                    int from = FIRST_DAY - 2 + random.nextInt(DAYS + 4);
+                    int to = from + random.nextInt(DAYS / 2);
+                    assertEquals("Longest streak of " + emotion + " in " + from + ".." + to,
+                            longestStreak(counts, from, to, e), store.longestStreak(from, to, emotion));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptiedDaysDisappear() {
+        edit(500);
+        long[] all = new long[ids.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = ids.get(i);
+        }
+        assertEquals(all.length, store.removeAll(all, new long[all.length]));
+        oracle.clear();
+        ids.clear();
+        assertEquals(0, store.dayCount());
+        assertRange(FIRST_DAY - 1, FIRST_DAY + DAYS);
+        assertEquals(0, store.streakEndingOn(FIRST_DAY, Emotion.values()[0]));
+    }
+
+    /**
+     * Apply random inserts, single deletes, batch deletes and merges
+     */
+    private void edit(int operations) {
+        for (int op = 0; op < operations; op++) {
+            int kind = random.nextInt(100);
+            if (kind < 60 || ids.isEmpty()) {
+                insert();
+            } else if (kind < 85) {
+                long id = ids.remove(random.nextInt(ids.size()));
+                assertEquals(true, store.remove(id));
+                oracle.remove(id);
+            } else if (kind < 93) {
+                removeBatch();
+            } else {
+                mergeBatch();
+            }
+        }
+    }
+
+    private void insert() {
+        int day = FIRST_DAY + random.nextInt(DAYS);
+        int ordinal = random.nextInt(EMOTIONS);
+        long id = LogIdGenerator.next();
+        store.insert(id, timeOn(day), Emotion.values()[ordinal]);
+        oracle.put(id, new int[] {day, ordinal});
+        ids.add(id);
+    }
+
+    private void removeBatch() {
+        int count = 1 + random.nextInt(Math.min(20, ids.size()));
+        long[] targets = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            targets[i] = ids.remove(random.nextInt(ids.size()));
+            oracle.remove(targets[i]);
+        }
+        targets[count] = -1; // unknown ids are skipped
+        assertEquals(count, store.removeAll(targets, new long[targets.length]));
+    }
+
+    private void mergeBatch() {
+        int count = 1 + random.nextInt(50);
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = timeOn(FIRST_DAY + random.nextInt(DAYS));
+        }
+        Arrays.sort(times);
+        long[] batchIds = new long[count];
+        byte[] batchEmotions = new byte[count];
+        for (int i = 0; i < count; i++) {
+            batchIds[i] = LogIdGenerator.next();
+            batchEmotions[i] = (byte) random.nextInt(EMOTIONS);
+            oracle.put(batchIds[i], new int[] {EpochDays.of(times[i]), batchEmotions[i]});
+            ids.add(batchIds[i]);
+        }
+        assertEquals(count, store.merge(batchIds, times, batchEmotions, count));
+    }
+
+    /**
+     * @return A moment within a day, well clear of its midnights
+     */
+    private long timeOn(int day) {
+        return EpochDays.noonOf(day) + (long) (random.nextDouble() * 2 * SPREAD) - SPREAD;
+    }
+
+    private void assertRange(int from, int to) {
+        int[] expected = new int[EMOTIONS];
+        int expectedTotal = 0;
+        List<Integer> expectedDays = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> day : countByDay().entrySet()) {
+            if (day.getKey() < from || day.getKey() > to) {
+                continue;
+            }
+            expectedDays.add(day.getKey());
+            for (int e = 0; e < EMOTIONS; e++) {
+                expected[e] += day.getValue()[e];
+                expectedTotal += day.getValue()[e];
+            }
+        }
+
+        int[] counts = new int[EMOTIONS];
+        String range = "Days " + from + ".." + to;
+        assertEquals(range, expectedTotal, store.countRange(from, to, counts));
+        assertArrayEquals(range, expected, counts);
+        assertEquals(range, expectedDays.size(), store.countDays(from, to));
+        int[] days = new int[expectedDays.size()];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = expectedDays.get(i);
+        }
+        assertArrayEquals(range, days, store.getDays(from, to));
+    }
+
+    /**
+     * @return Per-emotion counts of every day with logs, recounted from the oracle
+     */
+    private TreeMap<Integer, int[]> countByDay() {
+        TreeMap<Integer, int[]> byDay = new TreeMap<>();
+        for (int[] log : oracle.values()) {
+            int[] counts = byDay.get(log[0]);
+            if (counts == null) {
+                counts = new int[EMOTIONS];
+                byDay.put(log[0], counts);
+            }
+            counts[log[1]]++;
+        }
+        return byDay;
+    }
+
+    private static boolean logged(TreeMap<Integer, int[]> counts, int day, int ordinal) {
+        int[] dayCounts = counts.get(day);
+        return dayCounts != null && dayCounts[ordinal] > 0;
+    }
+
+    private static int streakEndingOn(TreeMap<Integer, int[]> counts, int day, int ordinal) {
+        int streak = 0;
+        while (logged(counts, day - streak, ordinal)) {
+            streak++;
+        }
+        return streak;
+    }
+
+    private static int longestStreak(TreeMap<Integer, int[]> counts, int from, int to, int ordinal) {
+        int longest = 0;
+        int run = 0;
+        for (int day = from; day <= to; day++) {
+            run = logged(counts, day, ordinal) ? run + 1 : 0;
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * Checks DaySummaryCache on its own (least-recently-used eviction, hit and
+ * miss counting, invalidation) and through EmotionLogManager, where a
+ * change to one day must drop that day's summary and no other
+ * Needs unitTests.returnDefaultValues, since the manager logs through android.util.Log
+ */
+public class DaySummaryCacheTest {
+    private static final int DAY = 19700;
+
+    @Test
+    public void evictsTheLeastRecentlyUsedDay() {
+        DaySummaryCache cache = new DaySummaryCache(3);
+        cache.put(summary(DAY));
+        cache.put(summary(DAY + 1));
+        cache.put(summary(DAY + 2));
+        cache.get(DAY); // DAY + 1 is now the eldest
+        cache.put(summary(DAY + 3));
+
+        assertNull(cache.peek(DAY + 1));
+        assertEquals(DAY, cache.peek(DAY).getEpochDay());
+        assertEquals(DAY + 2, cache.peek(DAY + 2).getEpochDay());
+        assertEquals(DAY + 3, cache.peek(DAY + 3).getEpochDay());
+        SummaryCacheStats stats = cache.stats();
+        assertEquals(1, stats.getEvictions());
+        assertEquals(3, stats.getSize());
+        assertEquals(3, stats.getCapacity());
+    }
+
+    @Test
+    public void peekCountsOnlyHits() {
+        DaySummaryCache cache = new DaySummaryCache(4);
+        cache.put(summary(DAY));
+        assertNull(cache.peek(DAY + 1));
+        assertNull(cache.get(DAY + 1));
+        cache.peek(DAY);
+        cache.get(DAY);
+        SummaryCacheStats stats = cache.stats();
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void invalidationDropsOnlyTheNamedDay() {
+        DaySummaryCache cache = new DaySummaryCache(4);
+        cache.put(summary(DAY));
+        cache.put(summary(DAY + 1));
+        cache.invalidate(DAY);
+        cache.invalidate(DAY + 5); // not cached: nothing happens
+        assertNull(cache.peek(DAY));
+        assertEquals(DAY + 1, cache.peek(DAY + 1).getEpochDay());
+
+        cache.invalidateAll();
+        assertNull(cache.peek(DAY + 1));
+        assertEquals(0, cache.stats().getSize());
+        assertEquals(0, cache.stats().getEvictions());
+    }
+
+    @Test
+    public void managerDropsOnlyChangedDays() throws IOException {
+        EmotionLogManager manager = TestManagers.emptyManager();
+        add(manager, DAY, Emotion.HAPPY);
+        add(manager, DAY + 1, Emotion.SAD);
+
+        DaySummary first = manager.getDaySummary(EmotionLogManager.getDateForDay(DAY));
+        DaySummary second = manager.getDaySummary(EmotionLogManager.getDateForDay(DAY + 1));
+        long hits = manager.getSummaryCacheStats().getHits();
+        assertSame(first, manager.getDaySummary(EmotionLogManager.getDateForDay(DAY)));
+        assertSame(second, manager.peekDaySummary(DAY + 1));
+        assertEquals(hits + 2, manager.getSummaryCacheStats().getHits());
+
+        // A new log on the first day replaces its summary; the other stays
+        EmotionLog log = add(manager, DAY, Emotion.CALM);
+        assertNull(manager.peekDaySummary(DAY));
+        assertSame(second, manager.peekDaySummary(DAY + 1));
+        DaySummary updated = manager.getDaySummary(EmotionLogManager.getDateForDay(DAY));
+        assertNotSame(first, updated);
+        assertEquals(2, updated.getTotalCount());
+        assertEquals(Emotion.HAPPY, updated.getItems().get(0).getEmotion());
+        assertEquals(Emotion.CALM, updated.getItems().get(1).getEmotion());
+
+        // So does deleting one
+        manager.deleteLog(log);
+        assertNull(manager.peekDaySummary(DAY));
+        assertSame(second, manager.peekDaySummary(DAY + 1));
+        assertEquals(1, manager.getDaySummary(EmotionLogManager.getDateForDay(DAY)).getTotalCount());
+
+        manager.clearAllLogs();
+        assertNull(manager.peekDaySummary(DAY));
+        assertNull(manager.peekDaySummary(DAY + 1));
+        assertEquals(0, manager.getDaySummary(EmotionLogManager.getDateForDay(DAY + 1)).getTotalCount());
+    }
+
+    private static EmotionLog add(EmotionLogManager manager, int day, Emotion emotion) {
+        EmotionLog log = new EmotionLog(emotion, new Date(EpochDays.noonOf(day)));
+        manager.addLog(log);
+        return log;
+    }
+
+    private static DaySummary summary(int day) {
+        return new DaySummary(day, 0, 0, new ArrayList<SummaryActivity.EmotionSummaryItem>());
+    }
+}
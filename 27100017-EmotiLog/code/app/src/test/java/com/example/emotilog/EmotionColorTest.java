@@ -0,0 +1,52 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Checks the ARGB colors Emotion parses once at start-up against the hex
+ * strings they come from, and the parser on the inputs Color.parseColor()
+ * accepts and rejects
+ */
+public class EmotionColorTest {
+
+    @Test
+    public void parsedColorsMatchTheirStrings() {
+        for (Emotion emotion : Emotion.values()) {
+            assertEquals(emotion.name(), opaque(emotion.getColorCode()), emotion.getColorArgb());
+            assertEquals(emotion.name(), opaque(emotion.getBackgroundTint()),
+                    emotion.getBackgroundTintArgb());
+            assertEquals(emotion.getEmoji() + " " + emotion.getDisplayName(),
+                    emotion.getFormattedDisplay());
+        }
+        assertEquals(0xFFFFD700, Emotion.HAPPY.getColorArgb());
+        assertEquals(0xFFD8DCE0, Emotion.TIRED.getBackgroundTintArgb());
+    }
+
+    @Test
+    public void parsesAlphaAndEitherCase() {
+        assertEquals(0x80FF4500, Emotion.parseArgb("#80FF4500"));
+        assertEquals(0x00000000, Emotion.parseArgb("#00000000"));
+        assertEquals(0xFFFFFFFF, Emotion.parseArgb("#ffffff"));
+        assertEquals(0xFF20B2AA, Emotion.parseArgb("#20b2AA"));
+    }
+
+    @Test
+    public void rejectsWhatIsNotAHexColor() {
+        String[] bad = {"", "#", "FFD700", "#FFD70", "#FFD7000", "#FFD700000", "#FFG700", "red"};
+        for (String code : bad) {
+            try {
+                Emotion.parseArgb(code);
+                fail("Parsed " + code);
+            } catch (IllegalArgumentException expected) {
+                // rejected, as Color.parseColor() does
+            }
+        }
+    }
+
+    private static int opaque(String code) {
+        return (int) (Long.parseLong(code.substring(1), 16) | 0xFF000000L);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.emotilog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Times the text work of showing a screen of log rows: what
+ * EmotionLogAdapter.onBindViewHolder does through EmotionLogFormatter,
+ * against the old ListView getView, which built two SimpleDateFormats per row
+ * Views are left out; they cannot be created on the JVM, and both versions
+ * set the same number of them
+ * Run with ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class EmotionLogBindingBenchmark {
+    private static final long NOW = 1700000000000L;
+    private static final int DAYS = 100;
+    private static final int LOGS_PER_DAY = 20;
+
+    private List<EmotionLog> rows;
+    private LogSectionIndex sections;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+        EmotionLogStore store = new EmotionLogStore();
+        Emotion[] emotions = Emotion.values();
+        long step = EpochDays.MILLIS_PER_DAY / LOGS_PER_DAY;
+        for (int i = DAYS * LOGS_PER_DAY - 1; i >= 0; i--) {
+            store.insert(LogIdGenerator.next(), NOW - i * step, emotions[i % emotions.length]);
+        }
+        rows = store.getRange(0, store.size());
+        int[] days = new int[store.dayCount()];
+        int[] firstRows = new int[days.length];
+        store.copySections(days, firstRows);
+        sections = new LogSectionIndex(days, firstRows, store.size(), 1);
+    }
+
+    @Test
+    public void bindRows() throws Exception {
+        final int count = rows.size();
+        Benchmarks.measure("bind row, EmotionLogFormatter", count, new Benchmarks.Workload() {
+            @Override
+            long run() {
+                long chars = 0;
+                for (int position = 0; position < count; position++) {
+                    EmotionLog log = rows.get(position);
+                    int section = sections.getSectionStartingAt(position);
+                    if (section >= 0) {
+                        chars += EmotionLogFormatter.formatDay(sections.getDay(section)).length();
+                    }
+                    chars += log.getEmotion().getFormattedDisplay().length();
+                    chars += log.getFormattedTime().length();
+                    chars += log.getEmotion().getColorArgb();
+                }
+                return chars;
+            }
+        });
+
+        Benchmarks.measure("getView row, SimpleDateFormat per call", count, new Benchmarks.Workload() {
+            @Override
+            long run() {
+                long chars = 0;
+                for (int position = 0; position < count; position++) {
+                    EmotionLog log = rows.get(position);
+                    chars += log.getEmotion().getFormattedDisplay().length();
+                    chars += new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault())
+                            .format(log.getTimestamp()).length();
+                    chars += new SimpleDateFormat("hh:mm:ss a", Locale.getDefault())
+                            .format(log.getTimestamp()).length();
+                }
+                return chars;
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+/**
+ * Checks the day range and day tests of EmotionLogChange for changes that
+ * name their days and for those that may touch any day
+ */
+public class EmotionLogChangeTest {
+
+    @Test
+    public void namedDaysBoundTheRange() {
+        EmotionLogChange change = new EmotionLogChange(EmotionLogChange.Type.INSERTED,
+                new int[] {19702, 19690, 19700}, 7, 3);
+        assertEquals(19702, change.getNewestDay());
+        assertEquals(19690, change.getOldestDay());
+        assertTrue(change.affectsDay(19690));
+        assertTrue(change.affectsDay(19700));
+        assertFalse(change.affectsDay(19695)); // inside the range, but untouched
+        assertFalse(change.affectsDay(19703));
+        assertTrue(change.affectsDate(new Date(EpochDays.noonOf(19702))));
+        assertFalse(change.affectsDate(new Date(EpochDays.noonOf(19701))));
+    }
+
+    @Test
+    public void clearAndLoadTouchEveryDay() {
+        EmotionLogChange.Type[] types = {EmotionLogChange.Type.CLEARED, EmotionLogChange.Type.LOADED};
+        for (EmotionLogChange.Type type : types) {
+            EmotionLogChange change = new EmotionLogChange(type, new int[0], 1, 0);
+            assertEquals(Integer.MAX_VALUE, change.getNewestDay());
+            assertEquals(Integer.MIN_VALUE, change.getOldestDay());
+            assertTrue(change.affectsDay(Integer.MIN_VALUE));
+            assertTrue(change.affectsDay(0));
+            assertTrue(change.affectsDay(Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void noDaysIsAnEmptyRange() {
+        EmotionLogChange change = new EmotionLogChange(EmotionLogChange.Type.DELETED, new int[0], 2, 5);
+        assertTrue(change.getOldestDay() > change.getNewestDay());
+        assertFalse(change.affectsDay(0));
+        assertEquals(2, change.getVersion());
+        assertEquals(5, change.getTotalCount());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.emotilog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times deleting one log by id from EmotionLogStore, where the columns
+ * shift down over the deleted row, depending on how old the log is, and
+ * against the old ArrayList of EmotionLog, which had to find the log first
+ * Run with ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class EmotionLogDeleteBenchmark {
+    private static final long NOW = 1700000000000L;
+    private static final long STEP = 60000L; // a log a minute
+    private static final int[] SIZES = {10000, 100000, 1000000};
+    private static final int DELETES = 100;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void deleteOneLog() throws Exception {
+        for (final int size : SIZES) {
+            // Rows are oldest first, so the newest log shifts nothing and the oldest shifts every row
+            measureStore("store delete newest log, " + size + " rows", size, 1.0);
+            measureStore("store delete log of a random age, " + size + " rows", size, -1);
+            measureStore("store delete oldest log, " + size + " rows", size, 0.0);
+
+            final Random random = new Random(12);
+            final List<EmotionLog> list = new ArrayList<>(size);
+            Emotion[] emotions = Emotion.values();
+            for (int i = 0; i < size; i++) {
+                list.add(new EmotionLog(emotions[i % emotions.length], new Date(NOW - i * STEP)));
+            }
+            final int ops = size >= 1000000 ? 10 : DELETES;
+            Benchmarks.measure("ArrayList remove log of a random age, " + size + " rows", ops,
+                    new Benchmarks.Workload() {
+                        @Override
+                        long run() {
+                            long removed = 0;
+                            for (int i = 0; i < ops; i++) {
+                                EmotionLog log = list.get(random.nextInt(list.size()));
+                                removed += list.remove(log) ? 1 : 0;
+                                list.add(log); // back at the end: the next search may go further
+                            }
+                            return removed;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * @param age 0 for the oldest log, 1 for the newest, negative for a random one
+     */
+    private static void measureStore(String name, int size, final double age) throws Exception {
+        final EmotionLogStore store = new EmotionLogStore();
+        Emotion[] emotions = Emotion.values();
+        for (int i = size - 1; i >= 0; i--) {
+            store.insert(LogIdGenerator.next(), NOW - i * STEP, emotions[i % emotions.length]);
+        }
+        final Random random = new Random(12);
+        final long[] ids = new long[DELETES];
+        final long[] times = new long[DELETES];
+        Benchmarks.measure(name, DELETES, new Benchmarks.Workload() {
+            @Override
+            void setUp() {
+                // Put back what the last round deleted, then pick the next victims
+                for (int i = 0; i < DELETES && ids[i] != 0; i++) {
+                    store.insert(ids[i], times[i], Emotion.HAPPY);
+                }
+                long[] column = store.copyIds();
+                long[] timeColumn = store.copyTimestamps();
+                for (int i = 0; i < DELETES; i++) {
+                    int row = age < 0 ? random.nextInt(store.size() - DELETES)
+                            : (int) (age * (store.size() - 1 - DELETES)) + i;
+                    ids[i] = column[row];
+                    times[i] = timeColumn[row];
+                }
+            }
+
+            @Override
+            long run() {
+                long removed = 0;
+                for (int i = 0; i < DELETES; i++) {
+                    removed += store.remove(ids[i]) ? 1 : 0;
+                }
+                return removed;
+            }
+        });
+    }
+}
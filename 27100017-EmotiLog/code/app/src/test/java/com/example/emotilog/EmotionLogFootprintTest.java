@@ -0,0 +1,63 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Measures with JOL the heap held by EmotionLogStore against the
+ * ArrayList of EmotionLog the manager used to keep, for the same logs
+ * Sizes are those of the JVM running the tests, not of ART, but object
+ * headers and references are about the same size on both
+ */
+public class EmotionLogFootprintTest {
+    private static final long NOW = 1700000000000L;
+    private static final long STEP = 60000L; // a log a minute
+    private static final int[] SIZES = {10000, 100000};
+
+    @Test
+    public void columnsTakeAFractionOfTheObjectList() {
+        for (int logs : SIZES) {
+            EmotionLogStore store = new EmotionLogStore();
+            ArrayList<EmotionLog> list = new ArrayList<>(logs);
+            Emotion[] emotions = Emotion.values();
+            for (int i = logs - 1; i >= 0; i--) {
+                EmotionLog log = new EmotionLog(emotions[i % emotions.length], new Date(NOW - i * STEP));
+                store.insert(log);
+                list.add(log);
+            }
+
+            double columns = perLog(GraphLayout.parseInstance(
+                    store.copyIds(), store.copyTimestamps(), store.copyEmotions()).totalSize(), logs);
+            double wholeStore = perLog(GraphLayout.parseInstance(store).totalSize(), logs);
+            double objects = perLog(GraphLayout.parseInstance(list).totalSize(), logs);
+            // The list could not find a log by id; this is what that would add
+            HashMap<Long, EmotionLog> byId = new HashMap<>();
+            for (EmotionLog log : list) {
+                byId.put(log.getId(), log);
+            }
+            double objectsById = perLog(GraphLayout.parseInstance(list, byId).totalSize(), logs);
+            System.out.println(String.format(Locale.ROOT, "%d logs, bytes per log: columns %.1f, "
+                            + "store with indexes %.1f, ArrayList<EmotionLog> %.1f, "
+                            + "with a HashMap by id %.1f",
+                    logs, columns, wholeStore, objects, objectsById));
+
+            // A long id, a long timestamp and a byte emotion
+            assertTrue("Columns take " + columns + " bytes per log", columns < 17.1);
+            assertTrue("Columns take " + columns + " bytes per log, the list " + objects,
+                    columns < objects / 3);
+            assertTrue("Store takes " + wholeStore + " bytes per log, the list with ids "
+                    + objectsById, wholeStore < objectsById / 1.5);
+        }
+    }
+
+    private static double perLog(long bytes, int logs) {
+        return (double) bytes / logs;
+    }
+}
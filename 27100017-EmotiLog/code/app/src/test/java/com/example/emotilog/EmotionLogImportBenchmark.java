@@ -0,0 +1,151 @@
+package com.example.emotilog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Times importing a million rows into a store that already holds a
+ * history: parsing, sorting and the single merge pass, from CSV and binary
+ * files in time order and shuffled, against reading the CSV line by line
+ * with String.split and inserting each log on its own, timed per row over
+ * the first rows only
+ * Run with ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class EmotionLogImportBenchmark {
+    private static final long NOW = 1700000000000L;
+    private static final long STEP = 60000L; // a log a minute
+    private static final int ROWS = 1000000;
+    private static final int EXISTING = 100000;
+    private static final int BASELINE_ROWS = 20000;
+
+    private long[] times;
+    private byte[] ordinals;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+        // Imported history is older than what the store holds
+        times = new long[ROWS];
+        ordinals = new byte[ROWS];
+        int emotions = Emotion.values().length;
+        for (int i = 0; i < ROWS; i++) {
+            times[i] = NOW - (EXISTING + ROWS - i) * STEP;
+            ordinals[i] = (byte) (i % emotions);
+        }
+    }
+
+    @Test
+    public void importMillionRows() throws Exception {
+        byte[] sortedCsv = csv(false);
+        byte[] shuffledCsv = csv(true);
+        measureImport("import CSV, 1M rows in time order", sortedCsv, EmotionLogFormat.CSV);
+        measureImport("import CSV, 1M rows shuffled", shuffledCsv, EmotionLogFormat.CSV);
+        measureImport("import binary, 1M rows in time order", binary(false), EmotionLogFormat.BINARY);
+        measureImport("import binary, 1M rows shuffled", binary(true), EmotionLogFormat.BINARY);
+
+        // Each of these inserts shifts the whole existing history, so only
+        // the first rows are timed
+        final byte[] csv = sortedCsv;
+        final EmotionLogStore[] store = new EmotionLogStore[1];
+        Benchmarks.measure("split + parse + insert each, first " + BASELINE_ROWS + " rows",
+                BASELINE_ROWS, 1, 3,
+                new Benchmarks.Workload() {
+                    @Override
+                    void setUp() {
+                        store[0] = existingStore();
+                    }
+
+                    @Override
+                    long run() throws Exception {
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                                new ByteArrayInputStream(csv), StandardCharsets.US_ASCII));
+                        reader.readLine(); // header
+                        for (int i = 0; i < BASELINE_ROWS; i++) {
+                            String line = reader.readLine();
+                            String[] fields = line.split(",");
+                            store[0].insert(LogIdGenerator.next(), Long.parseLong(fields[0].trim()),
+                                    Emotion.valueOf(fields[1].trim().toUpperCase(Locale.ROOT)));
+                        }
+                        return store[0].size();
+                    }
+                });
+    }
+
+    private void measureImport(String name, final byte[] file, final EmotionLogFormat format)
+            throws Exception {
+        final EmotionLogStore[] store = new EmotionLogStore[1];
+        Benchmarks.measure(name, ROWS, 1, 3, new Benchmarks.Workload() {
+            @Override
+            void setUp() {
+                store[0] = existingStore();
+            }
+
+            @Override
+            long run() throws Exception {
+                EmotionLogImporter importer = new EmotionLogImporter(null);
+                importer.read(new ByteArrayInputStream(file), format);
+                importer.prepare();
+                return store[0].merge(importer.ids(), importer.timestamps(), importer.emotions(),
+                        importer.size());
+            }
+        });
+    }
+
+    private static EmotionLogStore existingStore() {
+        EmotionLogStore store = new EmotionLogStore();
+        for (int i = EXISTING - 1; i >= 0; i--) {
+            store.insert(LogIdGenerator.next(), NOW - i * STEP, Emotion.HAPPY);
+        }
+        return store;
+    }
+
+    private int[] order(boolean shuffled) {
+        int[] order = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            order[i] = i;
+        }
+        if (shuffled) {
+            Random random = new Random(14);
+            for (int i = ROWS - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+        return order;
+    }
+
+    private byte[] csv(boolean shuffled) {
+        Emotion[] emotions = Emotion.values();
+        StringBuilder text = new StringBuilder(ROWS * 24);
+        text.append(EmotionLogFormat.CSV_HEADER).append('\n');
+        for (int row : order(shuffled)) {
+            text.append(times[row]).append(',').append(emotions[ordinals[row]].name()).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] binary(boolean shuffled) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                8 + ROWS * EmotionLogFormat.BINARY_RECORD_SIZE);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(EmotionLogFormat.BINARY_MAGIC);
+        out.writeInt(EmotionLogFormat.BINARY_VERSION);
+        for (int row : order(shuffled)) {
+            out.writeLong(times[row]);
+            out.writeByte(ordinals[row]);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Round trips exports through EmotionLogImporter and checks that bad rows
+ * fail the import with their line or record number
+ */
+public class EmotionLogImporterTest {
+    private static final long BASE = 1700000000000L;
+
+    @Test
+    public void csvExportImportsBackUnchanged() throws IOException {
+        assertRoundTrip(EmotionLogFormat.CSV);
+    }
+
+    @Test
+    public void binaryExportImportsBackUnchanged() throws IOException {
+        assertRoundTrip(EmotionLogFormat.BINARY);
+    }
+
+    @Test
+    public void csvHeaderAndBlankLinesAreSkipped() throws IOException {
+        EmotionLogImporter importer = importCsv("timestamp,emotion\n\n"
+                + BASE + ",happy\r\n"
+                + "  " + (BASE - 1000) + " , SAD \n");
+        importer.prepare();
+        assertEquals(2, importer.size());
+        assertEquals(BASE - 1000, importer.timestamps()[0]);
+        assertEquals(Emotion.SAD.ordinal(), importer.emotions()[0]);
+        assertEquals(Emotion.HAPPY.ordinal(), importer.emotions()[1]);
+    }
+
+    @Test
+    public void malformedCsvLineNamesItsLine() {
+        assertCsvFails(BASE + ",HAPPY\nnot-a-time,SAD\n", "Line 2: invalid timestamp");
+        assertCsvFails(BASE + ",HAPPY\n" + BASE + ",GRUMPY\n", "Line 2: unknown emotion");
+        assertCsvFails(BASE + " HAPPY\n", "Line 1: expected");
+    }
+
+    @Test
+    public void outOfRangeCsvTimestampIsABadRow() {
+        assertCsvFails(BASE + ",HAPPY\n300000000000000000,HAPPY\n",
+                "Line 2: timestamp out of range");
+        assertCsvFails("999999999999999999,CALM\n", "Line 1: timestamp out of range");
+        assertCsvFails("-999999999999999999,CALM\n", "Line 1: timestamp out of range");
+    }
+
+    @Test
+    public void supportedRangeEndsAreAccepted() throws IOException {
+        EmotionLogImporter importer = importCsv(EpochDays.MAX_MILLIS + ",HAPPY\n"
+                + EpochDays.MIN_MILLIS + ",SAD\n");
+        importer.prepare();
+        assertEquals(2, importer.size());
+        assertEquals(EpochDays.MIN_MILLIS, importer.timestamps()[0]);
+        assertEquals(EpochDays.MAX_MILLIS, importer.timestamps()[1]);
+        assertTrue(EpochDays.of(EpochDays.MIN_MILLIS) < EpochDays.of(EpochDays.MAX_MILLIS));
+    }
+
+    @Test
+    public void outOfRangeBinaryTimestampIsABadRecord() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(EmotionLogFormat.BINARY_MAGIC);
+        out.writeInt(EmotionLogFormat.BINARY_VERSION);
+        out.writeLong(BASE);
+        out.writeByte(Emotion.HAPPY.ordinal());
+        out.writeLong(Long.MAX_VALUE);
+        out.writeByte(Emotion.HAPPY.ordinal());
+        out.flush();
+
+        EmotionLogImporter importer = new EmotionLogImporter(null);
+        try {
+            importer.read(new ByteArrayInputStream(bytes.toByteArray()), EmotionLogFormat.BINARY);
+            fail("Out of range record imported");
+        } catch (IOException e) {
+            assertEquals("Record 2: timestamp out of range", e.getMessage());
+        }
+    }
+
+    @Test
+    public void outOfRangeLogObjectIsABadRow() {
+        EmotionLog log = new EmotionLog(Emotion.HAPPY, new Date(EpochDays.MAX_MILLIS + 1));
+        EmotionLogImporter importer = new EmotionLogImporter(null);
+        try {
+            importer.readAll(Collections.singletonList(log).iterator());
+            fail("Out of range log imported");
+        } catch (IOException e) {
+            assertEquals("Log 1: timestamp out of range", e.getMessage());
+        }
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void dayKeyOverflowThrows() {
+        EpochDays.of(300000000000000000L);
+    }
+
+    private static void assertRoundTrip(EmotionLogFormat format) throws IOException {
+        EmotionLogStore store = new EmotionLogStore();
+        Random random = new Random(14);
+        Emotion[] values = Emotion.values();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            long time = BASE + (long) random.nextInt(400) * EpochDays.MILLIS_PER_DAY
+                    + random.nextInt((int) EpochDays.MILLIS_PER_DAY);
+            store.insert(LogIdGenerator.next(), time, values[random.nextInt(values.length)]);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int exported = new EmotionLogExporter(store, new ReentrantReadWriteLock().readLock())
+                .export(Channels.newChannel(out), format, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        assertEquals(count, exported);
+
+        EmotionLogImporter importer = new EmotionLogImporter(null);
+        importer.read(new ByteArrayInputStream(out.toByteArray()), format);
+        importer.prepare();
+        assertEquals(count, importer.size());
+
+        long[] expectedTimes = store.copyTimestamps();
+        byte[] expectedEmotions = store.copyEmotions();
+        assertArrayEquals(Arrays.copyOf(expectedTimes, count),
+                Arrays.copyOf(importer.timestamps(), count));
+        assertArrayEquals(Arrays.copyOf(expectedEmotions, count),
+                Arrays.copyOf(importer.emotions(), count));
+    }
+
+    private static EmotionLogImporter importCsv(String csv) throws IOException {
+        EmotionLogImporter importer = new EmotionLogImporter(null);
+        importer.read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)),
+                EmotionLogFormat.CSV);
+        return importer;
+    }
+
+    private static void assertCsvFails(String csv, String expectedMessage) {
+        try {
+            importCsv(csv);
+            fail("Imported a bad file: " + csv);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(expectedMessage));
+        }
+    }
+}
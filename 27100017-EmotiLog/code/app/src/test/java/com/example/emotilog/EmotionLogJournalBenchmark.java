@@ -0,0 +1,93 @@
+package com.example.emotilog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Times recovering a journal and replaying it into an EmotionLogStore, the
+ * work the loader thread does at startup, at the checkpoint threshold and
+ * for a million records that were never checkpointed
+ * Run with ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class EmotionLogJournalBenchmark {
+    private static final long NOW = 1700000000000L;
+    private static final long STEP = 60000L; // a log a minute
+    private static final int[] SIZES = {10000, 1000000};
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void recoverAndReplay() throws Exception {
+        for (final int size : SIZES) {
+            final File dir = Files.createTempDirectory("emotilog").toFile();
+            writeJournal(dir, size);
+
+            final EmotionLogJournal[] journal = new EmotionLogJournal[1];
+            Benchmarks.measure("journal recover, " + size + " records", size, 2, 5,
+                    new Benchmarks.Workload() {
+                        @Override
+                        long run() throws Exception {
+                            journal[0] = open(dir);
+                            journal[0].recover(0);
+                            return journal[0].getRecoveredNetAdds();
+                        }
+                    });
+
+            Benchmarks.measure("journal recover + replay into store, " + size + " records", size, 2, 5,
+                    new Benchmarks.Workload() {
+                        @Override
+                        long run() throws Exception {
+                            final EmotionLogStore store = new EmotionLogStore();
+                            journal[0] = open(dir);
+                            journal[0].recover(0);
+                            journal[0].replay(new EmotionLogJournal.Replayer() {
+                                @Override
+                                public void onAdd(long id, long timestamp, Emotion emotion) {
+                                    store.insert(id, timestamp, emotion);
+                                }
+
+                                @Override
+                                public void onDelete(long id) {
+                                    store.remove(id);
+                                }
+
+                                @Override
+                                public void onClear() {
+                                    store.clear();
+                                }
+                            });
+                            return store.size();
+                        }
+                    });
+        }
+    }
+
+    private static EmotionLogJournal open(File dir) throws Exception {
+        return new EmotionLogJournal(new File(dir, "emotion_logs.journal"),
+                new File(dir, "emotion_logs.snapshot"));
+    }
+
+    /**
+     * Append adds, oldest first as taps arrive, and wait for the writer to
+     * put them on disk
+     */
+    private static void writeJournal(File dir, int size) throws Exception {
+        EmotionLogJournal journal = open(dir);
+        journal.recover(0);
+        Emotion[] emotions = Emotion.values();
+        for (int i = size - 1; i >= 0; i--) {
+            journal.appendAdd(LogIdGenerator.next(), NOW - i * STEP, emotions[i % emotions.length]);
+        }
+        File file = new File(dir, "emotion_logs.journal");
+        long expected = (size + 1L) * EmotionLogJournal.RECORD_SIZE; // adds and the header
+        while (file.length() < expected) {
+            Thread.sleep(10);
+        }
+    }
+}
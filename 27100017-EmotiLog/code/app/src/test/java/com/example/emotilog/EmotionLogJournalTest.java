@@ -0,0 +1,167 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Appends from several threads while checkpoints are captured on the
+ * journal's writer thread, the way EmotionLogManager drives it, then
+ * recovers the files and checks that no log was lost or replayed twice
+ * Needs unitTests.returnDefaultValues, since the journal logs through android.util.Log
+ */
+public class EmotionLogJournalTest {
+    private static final long BASE = 1700000000000L;
+    private static final int THREADS = 4;
+    private static final int LOGS_PER_THREAD = 8000; // several checkpoints in all
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final EmotionLogStore store = new EmotionLogStore();
+    private final Set<String> captureThreads = Collections.synchronizedSet(new HashSet<String>());
+    private EmotionLogJournal journal;
+
+    private final Runnable capture = new Runnable() {
+        @Override
+        public void run() {
+            captureThreads.add(Thread.currentThread().getName());
+            lock.readLock().lock();
+            try {
+                if (journal.isCheckpointRequested()) {
+                    journal.checkpoint(store.copyIds(), store.copyTimestamps(),
+                            store.copyEmotions(), store.size());
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    };
+
+    @Test
+    public void capturedCheckpointsMatchTheJournal() throws Exception {
+        File dir = Files.createTempDirectory("emotilog").toFile();
+        journal = open(dir);
+        journal.recover(0);
+
+        Thread[] appenders = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            appenders[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Emotion[] emotions = Emotion.values();
+                    for (int i = 0; i < LOGS_PER_THREAD; i++) {
+                        append(LogIdGenerator.next(), BASE + (i * THREADS + thread) * 1000L,
+                                emotions[i % emotions.length]);
+                    }
+                }
+            }, "Appender" + t);
+            appenders[t].start();
+        }
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+
+        assertEquals(THREADS * LOGS_PER_THREAD, store.size());
+        assertTrue("No checkpoint was written", waitFor(new File(dir, "emotion_logs.snapshot")));
+        for (String name : captureThreads) {
+            assertFalse("Captured on " + name, name.startsWith("Appender"));
+        }
+
+        // Writes land in the background; recover copies until they settle
+        long[] expected = sorted(store.copyIds());
+        long[] recovered = null;
+        long deadline = System.currentTimeMillis() + 20000;
+        while (System.currentTimeMillis() < deadline) {
+            recovered = sorted(recoverCopy(dir));
+            if (Arrays.equals(expected, recovered)) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertArrayEquals(expected, recovered);
+    }
+
+    private void append(long id, long timestamp, Emotion emotion) {
+        lock.writeLock().lock();
+        try {
+            store.insert(id, timestamp, emotion);
+            journal.appendAdd(id, timestamp, emotion);
+            if (journal.shouldCheckpoint()) {
+                journal.requestCheckpoint(capture);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Load a copy of the snapshot and journal the way the manager does at startup
+     *
+     * @return Ids of the recovered history
+     */
+    private static long[] recoverCopy(File dir) throws IOException {
+        File copy = Files.createTempDirectory("emotilog").toFile();
+        for (String name : new String[] {"emotion_logs.snapshot", "emotion_logs.journal"}) {
+            File file = new File(dir, name);
+            if (file.exists()) {
+                Files.copy(file.toPath(), new File(copy, name).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        EmotionLogSnapshot snapshot = EmotionLogSnapshot.open(new File(copy, "emotion_logs.snapshot"));
+        final EmotionLogStore recovered = new EmotionLogStore();
+        EmotionLogJournal reopened = open(copy);
+        reopened.recover(snapshot == null ? 0 : snapshot.getGeneration());
+        if (snapshot != null) {
+            recovered.load(snapshot);
+        }
+        reopened.replay(new EmotionLogJournal.Replayer() {
+            @Override
+            public void onAdd(long id, long timestamp, Emotion emotion) {
+                recovered.insert(id, timestamp, emotion);
+            }
+
+            @Override
+            public void onDelete(long id) {
+                recovered.remove(id);
+            }
+
+            @Override
+            public void onClear() {
+                recovered.clear();
+            }
+        });
+        return recovered.copyIds();
+    }
+
+    private static EmotionLogJournal open(File dir) throws IOException {
+        return new EmotionLogJournal(new File(dir, "emotion_logs.journal"),
+                new File(dir, "emotion_logs.snapshot"));
+    }
+
+    private static boolean waitFor(File file) throws InterruptedException {
+        for (int i = 0; i < 400 && !file.exists(); i++) {
+            Thread.sleep(50);
+        }
+        return file.exists();
+    }
+
+    private static long[] sorted(long[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adds, deletes, counts and walks cursors on EmotionLogManager from several
+ * threads at once and checks that counts stay exact and cursors never read
+ * another row's data
+ * Needs unitTests.returnDefaultValues, since the manager logs through android.util.Log
+ */
+public class EmotionLogManagerConcurrencyTest {
+    private static final long BASE = 1700000000000L;
+    private static final int WRITERS = 4;
+    private static final int LOGS_PER_WRITER = 500;
+
+    private EmotionLogManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        manager = TestManagers.emptyManager();
+    }
+
+    @Test
+    public void concurrentAddsAndDeletesKeepTheCountExact() throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final Set<Long> kept = Collections.synchronizedSet(new HashSet<Long>());
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            writers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        Random random = new Random(writer);
+                        Emotion[] values = Emotion.values();
+                        for (int i = 0; i < LOGS_PER_WRITER; i++) {
+                            EmotionLog log = new EmotionLog(values[random.nextInt(values.length)],
+                                    new Date(BASE + random.nextInt(30) * EpochDays.MILLIS_PER_DAY
+                                            + random.nextInt(1000000)));
+                            manager.addLog(log);
+                            // Every other log is deleted again straight away
+                            if (i % 2 == 0) {
+                                assertTrue(manager.deleteLog(log));
+                                assertTrue(!manager.deleteLog(log));
+                            } else {
+                                kept.add(log.getId());
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            }));
+        }
+
+        Thread counter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    int maximum = WRITERS * LOGS_PER_WRITER;
+                    while (writing.get()) {
+                        int count = manager.getLogCount();
+                        assertTrue("Count " + count, count >= 0 && count <= maximum);
+                        EmotionLogPage page = manager.getLogsPage(0, 50);
+                        assertEquals(page.getSections().getTotalCount(), page.getTotalCount());
+                        assertTrue(page.getLogs().size() <= Math.min(50, page.getTotalCount()));
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        });
+
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        counter.start();
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        counter.join();
+
+        assertNoErrors(errors);
+        assertEquals(WRITERS * LOGS_PER_WRITER / 2, manager.getLogCount());
+        assertEquals(kept.size(), manager.getLogCount());
+
+        // The rows left are exactly the logs kept, newest first
+        EmotionLogCursor cursor = manager.getLogCursor();
+        Set<Long> seen = new HashSet<>();
+        long previous = Long.MAX_VALUE;
+        for (int row = 0; cursor.moveToPosition(row); row++) {
+            assertTrue(seen.add(cursor.getId()));
+            assertTrue(cursor.getTimestamp() <= previous);
+            previous = cursor.getTimestamp();
+        }
+        assertEquals(kept, seen);
+    }
+
+    @Test
+    public void cursorNeverReadsAnotherRowsData() throws InterruptedException {
+        final List<EmotionLog> logs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            logs.add(new EmotionLog(Emotion.values()[i % Emotion.values().length],
+                    new Date(BASE + i * 60000L)));
+        }
+        manager.addLogs(logs);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean deleting = new AtomicBoolean(true);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        Thread deleter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    for (int i = 0; i < logs.size(); i += 2) {
+                        manager.deleteLog(logs.get(i));
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    deleting.set(false);
+                }
+            }
+        });
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    EmotionLogCursor cursor = manager.getLogCursor();
+                    Random random = new Random(8);
+                    while (deleting.get()) {
+                        if (!cursor.moveToPosition(random.nextInt(logs.size()))) {
+                            continue;
+                        }
+                        long id = cursor.getId();
+                        try {
+                            EmotionLog log = cursor.toEmotionLog();
+                            long timestamp = cursor.getTimestamp();
+                            assertEquals(id, log.getId());
+                            assertEquals(timestamp, log.getTimestamp().getTime());
+                        } catch (IllegalStateException e) {
+                            // the pinned log was deleted or shifted; allowed
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        });
+
+        deleter.start();
+        reader.start();
+        start.countDown();
+        deleter.join();
+        reader.join();
+
+        assertNoErrors(errors);
+        assertEquals(logs.size() / 2, manager.getLogCount());
+    }
+
+    @Test
+    public void readingARemovedRowFails() {
+        EmotionLog older = new EmotionLog(Emotion.SAD, new Date(BASE));
+        EmotionLog newer = new EmotionLog(Emotion.HAPPY, new Date(BASE + 1000));
+        manager.addLog(older);
+        manager.addLog(newer);
+
+        EmotionLogCursor cursor = manager.getLogCursor();
+        assertTrue(cursor.moveToPosition(0));
+        assertEquals(newer.getId(), cursor.getId());
+        manager.deleteLog(newer);
+
+        // Row 0 now holds the older log; the cursor must not read it as the newer one
+        try {
+            cursor.getEmotion();
+            fail("Read a removed row");
+        } catch (IllegalStateException expected) {
+            // pinned log is gone
+        }
+        assertTrue(cursor.moveToPosition(0));
+        assertEquals(Emotion.SAD, cursor.getEmotion());
+    }
+
+    private static void assertNoErrors(List<Throwable> errors) {
+        if (!errors.isEmpty()) {
+            AssertionError error = new AssertionError(errors.size() + " thread(s) failed");
+            error.initCause(errors.get(0));
+            throw error;
+        }
+    }
+}
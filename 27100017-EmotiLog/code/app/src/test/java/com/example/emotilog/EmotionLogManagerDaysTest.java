@@ -0,0 +1,92 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Checks the distinct-day queries of EmotionLogManager: all days, days in
+ * a range, the day count and the formatted unique dates, before and after
+ * a day loses its last log
+ * Needs unitTests.returnDefaultValues, since the manager logs through android.util.Log
+ */
+public class EmotionLogManagerDaysTest {
+    private static final int DAY = 19700;
+
+    private EmotionLogManager manager;
+    private EmotionLog lateOnThirdDay;
+
+    @Before
+    public void setUp() throws IOException {
+        manager = TestManagers.emptyManager();
+        add(DAY + 5, Emotion.HAPPY);
+        add(DAY, Emotion.SAD);
+        add(DAY + 2, Emotion.CALM);
+        add(DAY + 2, Emotion.HAPPY);
+        // A minute before midnight still belongs to its own day
+        lateOnThirdDay = new EmotionLog(Emotion.SAD,
+                new Date(EpochDays.noonOf(DAY + 5) + 12 * EpochDays.MILLIS_PER_HOUR - 60000));
+        manager.addLog(lateOnThirdDay);
+    }
+
+    @Test
+    public void daysAreDistinctAndAscending() {
+        assertArrayEquals(new int[] {DAY, DAY + 2, DAY + 5}, manager.getLogDays());
+        assertEquals(3, manager.getLogDayCount());
+        assertEquals(Arrays.asList(EmotionLogFormatter.formatDay(DAY + 5),
+                EmotionLogFormatter.formatDay(DAY + 2), EmotionLogFormatter.formatDay(DAY)),
+                manager.getUniqueDates());
+    }
+
+    @Test
+    public void rangesIncludeBothEnds() {
+        assertArrayEquals(new int[] {DAY + 2, DAY + 5}, days(DAY + 2, DAY + 5));
+        assertArrayEquals(new int[] {DAY}, days(DAY - 10, DAY + 1));
+        assertArrayEquals(new int[0], days(DAY + 3, DAY + 4));
+        assertArrayEquals(new int[0], days(DAY + 6, DAY + 60));
+    }
+
+    @Test
+    public void emptiedDaysDisappear() {
+        assertEquals(true, manager.deleteLog(lateOnThirdDay));
+        assertEquals(3, manager.getLogDayCount()); // the day still has a log
+
+        manager.deleteLogs(Arrays.asList(idsOf(DAY + 5)));
+        assertArrayEquals(new int[] {DAY, DAY + 2}, manager.getLogDays());
+        assertEquals(2, manager.getLogDayCount());
+        assertEquals(Arrays.asList(EmotionLogFormatter.formatDay(DAY + 2),
+                EmotionLogFormatter.formatDay(DAY)), manager.getUniqueDates());
+    }
+
+    @Test
+    public void dateForDayRoundTrips() {
+        for (int day = DAY - 400; day <= DAY + 400; day += 7) {
+            assertEquals(day, EpochDays.of(EmotionLogManager.getDateForDay(day).getTime()));
+        }
+    }
+
+    private void add(int day, Emotion emotion) {
+        manager.addLog(new EmotionLog(emotion, new Date(EpochDays.noonOf(day))));
+    }
+
+    private int[] days(int from, int to) {
+        return manager.getLogDays(EmotionLogManager.getDateForDay(from),
+                EmotionLogManager.getDateForDay(to));
+    }
+
+    private Long[] idsOf(int day) {
+        List<EmotionLog> logs = manager.getLogsForDate(EmotionLogManager.getDateForDay(day));
+        Long[] ids = new Long[logs.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = logs.get(i).getId();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the range statistics, trends, streaks and hour-of-day histogram
+ * of EmotionLogManager against counts recomputed from the logs added,
+ * including after some of them are deleted
+ * Needs unitTests.returnDefaultValues, since the manager logs through android.util.Log
+ */
+public class EmotionLogManagerStatsTest {
+    private static final int FIRST_DAY = 19700;
+    private static final int DAYS = 90;
+
+    private final Random random = new Random(17);
+    private final List<EmotionLog> logs = new ArrayList<>();
+    private EmotionLogManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        manager = TestManagers.emptyManager();
+        Emotion[] emotions = Emotion.values();
+        for (int day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+            // Some days are skipped, so streaks break
+            if (random.nextInt(5) == 0) continue;
+            int count = 1 + random.nextInt(4);
+            for (int i = 0; i < count; i++) {
+                // Half the logs come from the first three emotions, so runs form
+                Emotion emotion = emotions[random.nextInt(2) == 0 ? random.nextInt(3)
+                        : random.nextInt(emotions.length)];
+                long time = EpochDays.noonOf(day) - 11 * EpochDays.MILLIS_PER_HOUR
+                        + random.nextInt(22) * EpochDays.MILLIS_PER_HOUR + random.nextInt(3600000);
+                EmotionLog log = new EmotionLog(emotion, new Date(time));
+                manager.addLog(log);
+                logs.add(log);
+            }
+        }
+    }
+
+    @Test
+    public void statsMatchARecount() {
+        checkStats();
+        deleteSome();
+        checkStats();
+    }
+
+    @Test
+    public void weeksAndMonthsFollowTheCalendar() {
+        Date date = EmotionLogManager.getDateForDay(FIRST_DAY + 40);
+        Calendar calendar = Calendar.getInstance(EpochDays.zone());
+        calendar.setTime(date);
+        while (calendar.get(Calendar.DAY_OF_WEEK) != calendar.getFirstDayOfWeek()) {
+            calendar.add(Calendar.DAY_OF_MONTH, -1);
+        }
+        int weekStart = EpochDays.of(calendar.getTimeInMillis());
+        assertStats(weekStart, weekStart + 6, manager.getStatsForWeek(date));
+
+        calendar.setTime(date);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        int monthStart = EpochDays.of(calendar.getTimeInMillis());
+        calendar.add(Calendar.MONTH, 1);
+        int monthEnd = EpochDays.of(calendar.getTimeInMillis()) - 1;
+        assertStats(monthStart, monthEnd, manager.getStatsForMonth(date));
+    }
+
+    @Test
+    public void trendsCompareBackToBackPeriods() {
+        for (int day = FIRST_DAY; day < FIRST_DAY + DAYS + 14; day += 3) {
+            Date date = EmotionLogManager.getDateForDay(day);
+            EmotionTrend dayOverDay = manager.getDayOverDay(date);
+            assertStats(day, day, dayOverDay.getCurrent());
+            assertStats(day - 1, day - 1, dayOverDay.getPrevious());
+            EmotionTrend weekOverWeek = manager.getWeekOverWeek(date);
+            assertStats(day - 6, day, weekOverWeek.getCurrent());
+            assertStats(day - 13, day - 7, weekOverWeek.getPrevious());
+            assertEquals(count(day - 6, day, null) - count(day - 13, day - 7, null),
+                    weekOverWeek.getTotalDelta());
+        }
+    }
+
+    @Test
+    public void streaksMatchARecount() {
+        checkStreaks();
+        deleteSome();
+        checkStreaks();
+    }
+
+    @Test
+    public void hourHistogramMatchesARecount() {
+        checkHours();
+        deleteSome();
+        checkHours();
+    }
+
+    private void checkStats() {
+        for (int i = 0; i < 200; i++) {
+            int from = FIRST_DAY - 5 + random.nextInt(DAYS + 10);
+            int to = from + random.nextInt(40);
+            assertStats(from, to, manager.getStatsForRange(EmotionLogManager.getDateForDay(from),
+                    EmotionLogManager.getDateForDay(to)));
+        }
+        // Whole history, and a window ending today with nothing in it
+        assertStats(FIRST_DAY, FIRST_DAY + DAYS - 1, manager.getStatsForRange(
+                EmotionLogManager.getDateForDay(FIRST_DAY),
+                EmotionLogManager.getDateForDay(FIRST_DAY + DAYS - 1)));
+        assertEquals(0, manager.getStatsForLastDays(7).getTotal());
+        assertEquals(7, manager.getStatsForLastDays(7).getDayCount());
+    }
+
+    private void checkStreaks() {
+        for (Emotion emotion : Emotion.values()) {
+            for (int day = FIRST_DAY - 1; day <= FIRST_DAY + DAYS; day++) {
+                int expected = 0;
+                while (count(day - expected, day - expected, emotion) > 0) {
+                    expected++;
+                }
+                assertEquals(emotion + " streak ending on " + day, expected,
+                        manager.getStreak(emotion, EmotionLogManager.getDateForDay(day)));
+            }
+            for (int i = 0; i < 50; i++) {
+                int from = FIRST_DAY - 5 + random.nextInt(DAYS + 10);
+                int to = from + random.nextInt(60);
+                int longest = 0;
+                int run = 0;
+                for (int day = from; day <= to; day++) {
+                    run = count(day, day, emotion) > 0 ? run + 1 : 0;
+                    longest = Math.max(longest, run);
+                }
+                assertEquals(emotion + " longest streak " + from + ".." + to, longest,
+                        manager.getLongestStreak(emotion, EmotionLogManager.getDateForDay(from),
+                                EmotionLogManager.getDateForDay(to)));
+            }
+        }
+    }
+
+    private void checkHours() {
+        Calendar calendar = Calendar.getInstance(EpochDays.zone());
+        int[] all = new int[24];
+        for (Emotion emotion : Emotion.values()) {
+            int[] expected = new int[24];
+            for (EmotionLog log : logs) {
+                if (log.getEmotion() == emotion) {
+                    calendar.setTime(log.getTimestamp());
+                    expected[calendar.get(Calendar.HOUR_OF_DAY)]++;
+                    all[calendar.get(Calendar.HOUR_OF_DAY)]++;
+                }
+            }
+            assertArrayEquals(emotion.name(), expected, manager.getHourOfDayCounts(emotion));
+        }
+        assertArrayEquals(all, manager.getHourOfDayCounts(null));
+    }
+
+    private void deleteSome() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < logs.size() / 3; i++) {
+            ids.add(logs.remove(random.nextInt(logs.size())).getId());
+        }
+        manager.deleteLogs(ids);
+        manager.deleteLog(logs.remove(random.nextInt(logs.size())));
+    }
+
+    private void assertStats(int from, int to, EmotionStats stats) {
+        String range = from + ".." + to;
+        int total = 0;
+        for (Emotion emotion : Emotion.values()) {
+            int expected = count(from, to, emotion);
+            assertEquals(range + " " + emotion, expected, stats.getCount(emotion));
+            total += expected;
+        }
+        assertEquals(range, total, stats.getTotal());
+        int active = 0;
+        for (int day = from; day <= to; day++) {
+            if (count(day, day, null) > 0) active++;
+        }
+        assertEquals(range, active, stats.getActiveDayCount());
+        assertEquals(range, to - from + 1, stats.getDayCount());
+    }
+
+    /**
+     * @param emotion Emotion to count, or null for all
+     */
+    private int count(int from, int to, Emotion emotion) {
+        int count = 0;
+        for (EmotionLog log : logs) {
+            int day = EpochDays.of(log.getTimestamp().getTime());
+            if (day >= from && day <= to && (emotion == null || log.getEmotion() == emotion)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.emotilog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares inserting into EmotionLogStore with the list the manager used to
+ * keep: an ArrayList of EmotionLog re-sorted after every add
+ * Run with ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class EmotionLogStoreBenchmark {
+    private static final long NOW = 1700000000000L;
+    private static final long STEP = 60000L; // a log a minute
+    private static final int[] SIZES = {10000, 100000, 1000000};
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void appendNewestLog() throws Exception {
+        for (final int size : SIZES) {
+            final EmotionLogStore store = newStore(size);
+            final long[] next = {NOW + 1};
+            Benchmarks.measure("store append, " + size + " rows", 1000, new Benchmarks.Workload() {
+                @Override
+                long run() {
+                    long position = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        position += store.insert(LogIdGenerator.next(), next[0]++, Emotion.HAPPY);
+                    }
+                    return position;
+                }
+            });
+
+            final List<EmotionLog> list = newList(size);
+            final int ops = baselineOps(size);
+            Benchmarks.measure("ArrayList add + sort, " + size + " rows", ops, new Benchmarks.Workload() {
+                @Override
+                long run() {
+                    for (int i = 0; i < ops; i++) {
+                        list.add(new EmotionLog(Emotion.HAPPY, new Date(next[0]++)));
+                        Collections.sort(list);
+                    }
+                    return list.size();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void insertBackDatedLog() throws Exception {
+        for (final int size : SIZES) {
+            final Random random = new Random(1);
+            final EmotionLogStore store = newStore(size);
+            Benchmarks.measure("store back-dated insert, " + size + " rows", 100,
+                    new Benchmarks.Workload() {
+                        @Override
+                        long run() {
+                            long position = 0;
+                            for (int i = 0; i < 100; i++) {
+                                position += store.insert(LogIdGenerator.next(),
+                                        NOW - (long) random.nextInt(size) * STEP, Emotion.SAD);
+                            }
+                            return position;
+                        }
+                    });
+
+            final List<EmotionLog> list = newList(size);
+            final int ops = baselineOps(size);
+            Benchmarks.measure("ArrayList back-dated add + sort, " + size + " rows", ops,
+                    new Benchmarks.Workload() {
+                        @Override
+                        long run() {
+                            for (int i = 0; i < ops; i++) {
+                                list.add(new EmotionLog(Emotion.SAD,
+                                        new Date(NOW - (long) random.nextInt(size) * STEP)));
+                                Collections.sort(list);
+                            }
+                            return list.size();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Sorting a million logs per add takes milliseconds, so the baseline does fewer adds
+     */
+    private static int baselineOps(int size) {
+        return size >= 100000 ? 10 : 100;
+    }
+
+    private static EmotionLogStore newStore(int size) {
+        EmotionLogStore store = new EmotionLogStore();
+        Emotion[] emotions = Emotion.values();
+        for (int i = size - 1; i >= 0; i--) {
+            store.insert(LogIdGenerator.next(), NOW - i * STEP, emotions[i % emotions.length]);
+        }
+        return store;
+    }
+
+    private static List<EmotionLog> newList(int size) {
+        List<EmotionLog> list = new ArrayList<>(size);
+        Emotion[] emotions = Emotion.values();
+        for (int i = 0; i < size; i++) {
+            list.add(new EmotionLog(emotions[i % emotions.length], new Date(NOW - i * STEP)));
+        }
+        return list;
+    }
+}
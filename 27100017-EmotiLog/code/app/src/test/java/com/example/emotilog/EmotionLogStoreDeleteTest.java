@@ -0,0 +1,102 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deletes logs from EmotionLogStore by id, one at a time and in batches,
+ * and checks that exactly the named logs go, even among logs that share
+ * a timestamp and emotion
+ */
+public class EmotionLogStoreDeleteTest {
+    private static final long TIME = 1700000000000L;
+
+    private final EmotionLogStore store = new EmotionLogStore();
+
+    @Test
+    public void deletesTheNamedLogAmongTwins() {
+        long[] twins = new long[5];
+        for (int i = 0; i < twins.length; i++) {
+            twins[i] = LogIdGenerator.next();
+            store.insert(twins[i], TIME, Emotion.HAPPY);
+        }
+        assertTrue(store.remove(twins[2]));
+        assertFalse(store.remove(twins[2]));
+        assertFalse(store.remove(-1));
+        assertEquals(4, store.size());
+        assertIds(new long[] {twins[0], twins[1], twins[3], twins[4]});
+
+        // A removed id can be stored again
+        store.insert(twins[2], TIME + 1, Emotion.SAD);
+        assertTrue(store.remove(twins[2]));
+        assertIds(new long[] {twins[0], twins[1], twins[3], twins[4]});
+    }
+
+    @Test
+    public void batchDeleteSkipsUnknownAndRepeatedIds() {
+        long[] ids = new long[10];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = LogIdGenerator.next();
+            store.insert(ids[i], TIME + i * 1000L, Emotion.CALM);
+        }
+        long[] targets = {ids[7], -5, ids[2], ids[7], ids[9]};
+        long[] times = new long[targets.length];
+        assertEquals(3, store.removeAll(targets, times));
+        assertArrayEquals(new long[] {ids[7], ids[2], ids[9]}, Arrays.copyOf(targets, 3));
+        assertArrayEquals(new long[] {TIME + 7000, TIME + 2000, TIME + 9000}, Arrays.copyOf(times, 3));
+        assertIds(new long[] {ids[0], ids[1], ids[3], ids[4], ids[5], ids[6], ids[8]});
+    }
+
+    @Test
+    public void randomDeletesMatchAList() {
+        Random random = new Random(12);
+        List<Long> expected = new ArrayList<>();
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                long id = LogIdGenerator.next();
+                // Few distinct timestamps, so many logs share one
+                store.insert(id, TIME + random.nextInt(20) * 1000L, Emotion.values()[random.nextInt(3)]);
+                expected.add(id);
+            }
+            for (int i = 0; i < 30; i++) {
+                long id = expected.remove(random.nextInt(expected.size()));
+                assertTrue(store.remove(id));
+            }
+            long[] batch = new long[10];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = expected.remove(random.nextInt(expected.size()));
+            }
+            assertEquals(batch.length, store.removeAll(batch, new long[batch.length]));
+
+            long[] sorted = new long[expected.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = expected.get(i);
+            }
+            Arrays.sort(sorted);
+            long[] actual = store.copyIds();
+            Arrays.sort(actual);
+            assertArrayEquals(sorted, actual);
+            long[] times = store.copyTimestamps();
+            for (int i = 1; i < times.length; i++) {
+                assertTrue("Rows out of order at " + i, times[i - 1] <= times[i]);
+            }
+        }
+    }
+
+    private void assertIds(long[] oldestFirst) {
+        long[] ids = store.copyIds();
+        Arrays.sort(ids);
+        long[] expected = oldestFirst.clone();
+        Arrays.sort(expected);
+        assertArrayEquals(expected, ids);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks EmotionStats and EmotionTrend on their own: counts, percentages,
+ * top-K ranking with ties, and deltas between two periods
+ */
+public class EmotionStatsTest {
+    private static final int DAY = 19700;
+
+    @Test
+    public void rankByCountIsStableAndSkipsZeroCounts() {
+        // HAPPY, SAD, GRATEFUL, ANGRY, EXCITED, ANXIOUS, CALM, TIRED
+        int[] counts = {2, 0, 5, 2, 0, 5, 1, 0};
+        int[] ranked = new int[counts.length];
+        assertEquals(5, EmotionStats.rankByCount(counts, ranked));
+        assertArrayEquals(new int[] {2, 5, 0, 3, 6, 1, 4, 7}, ranked);
+
+        assertEquals(0, EmotionStats.rankByCount(new int[counts.length], ranked));
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5, 6, 7}, ranked);
+    }
+
+    @Test
+    public void topEmotionsStopAtKOrAtTheLastLoggedEmotion() {
+        EmotionStats stats = stats(2, 0, 5, 2, 0, 5, 1, 0);
+        assertArrayEquals(new Emotion[] {Emotion.GRATEFUL, Emotion.ANXIOUS, Emotion.HAPPY},
+                stats.getTopEmotions(3));
+        assertArrayEquals(new Emotion[] {Emotion.GRATEFUL, Emotion.ANXIOUS, Emotion.HAPPY,
+                Emotion.ANGRY, Emotion.CALM}, stats.getTopEmotions(8));
+        assertEquals(0, stats.getTopEmotions(0).length);
+        assertEquals(0, stats(0, 0, 0, 0, 0, 0, 0, 0).getTopEmotions(3).length);
+    }
+
+    @Test
+    public void percentagesShareTheTotal() {
+        EmotionStats stats = stats(1, 3, 0, 0, 0, 0, 0, 4);
+        assertEquals(8, stats.getTotal());
+        assertEquals(3, stats.getCount(Emotion.SAD));
+        assertEquals(12.5f, stats.getPercentage(Emotion.HAPPY), 0);
+        assertEquals(37.5f, stats.getPercentage(Emotion.SAD), 0);
+        assertEquals(0f, stats.getPercentage(Emotion.CALM), 0);
+        assertEquals(50f, stats.getPercentage(Emotion.TIRED), 0);
+
+        assertEquals(0f, stats(0, 0, 0, 0, 0, 0, 0, 0).getPercentage(Emotion.HAPPY), 0);
+    }
+
+    @Test
+    public void rangeCoversBothEnds() {
+        EmotionStats stats = new EmotionStats(DAY, DAY + 6, new int[8], 0, 3);
+        assertEquals(7, stats.getDayCount());
+        assertEquals(3, stats.getActiveDayCount());
+        assertEquals(DAY, EpochDays.of(stats.getFromDate().getTime()));
+        assertEquals(DAY + 6, EpochDays.of(stats.getToDate().getTime()));
+    }
+
+    @Test
+    public void trendDeltasAreCurrentMinusPrevious() {
+        EmotionTrend trend = new EmotionTrend(stats(4, 1, 0, 0, 0, 0, 0, 0),
+                stats(1, 3, 0, 0, 0, 0, 0, 2));
+        assertEquals(3, trend.getDelta(Emotion.HAPPY));
+        assertEquals(-2, trend.getDelta(Emotion.SAD));
+        assertEquals(0, trend.getDelta(Emotion.CALM));
+        assertEquals(-2, trend.getDelta(Emotion.TIRED));
+        assertEquals(-1, trend.getTotalDelta());
+    }
+
+    private static EmotionStats stats(int... counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return new EmotionStats(DAY, DAY, counts, total, total > 0 ? 1 : 0);
+    }
+}
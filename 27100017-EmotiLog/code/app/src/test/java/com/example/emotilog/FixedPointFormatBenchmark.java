@@ -0,0 +1,61 @@
+package com.example.emotilog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Times the text of one summary row, a count and a percentage: what
+ * EmotionSummaryAdapter does through FixedPointFormat, against the old
+ * String.valueOf() and String.format("%.1f%%")
+ * Run with ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class FixedPointFormatBenchmark {
+    private static final int ROWS = 100000;
+
+    private final char[] countText = new char[FixedPointFormat.MAX_COUNT_CHARS];
+    private final char[] percentText = new char[FixedPointFormat.MAX_PERCENT_CHARS];
+    private int[] counts;
+    private int[] totals;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+        counts = new int[ROWS];
+        totals = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            totals[i] = 1 + i % 500;
+            counts[i] = i % totals[i];
+        }
+    }
+
+    @Test
+    public void formatSummaryRow() throws Exception {
+        Benchmarks.measure("FixedPointFormat count + percent", ROWS, new Benchmarks.Workload() {
+            @Override
+            long run() {
+                long length = 0;
+                for (int i = 0; i < ROWS; i++) {
+                    length += FixedPointFormat.formatCount(counts[i], countText);
+                    length += FixedPointFormat.formatPercent(counts[i], totals[i], '.', percentText);
+                }
+                return length;
+            }
+        });
+        Benchmarks.measure("String.valueOf + String.format(\"%.1f%%\")", ROWS,
+                new Benchmarks.Workload() {
+                    @Override
+                    long run() {
+                        long length = 0;
+                        Locale locale = Locale.getDefault();
+                        for (int i = 0; i < ROWS; i++) {
+                            length += String.valueOf(counts[i]).length();
+                            length += String.format(locale, "%.1f%%",
+                                    counts[i] * 100.0f / totals[i]).length();
+                        }
+                        return length;
+                    }
+                });
+    }
+}
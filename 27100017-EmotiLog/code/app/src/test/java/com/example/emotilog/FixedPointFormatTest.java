@@ -0,0 +1,128 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+/**
+ * Checks FixedPointFormat against BigDecimal rounding, half up to one decimal,
+ * and that writing counts and percentages allocates nothing
+ */
+public class FixedPointFormatTest {
+    private final char[] out = new char[FixedPointFormat.MAX_PERCENT_CHARS];
+
+    @Test
+    public void halvesRoundUp() {
+        assertPercent("12.5%", 1, 8);
+        assertPercent("6.3%", 1, 16);   // 6.25
+        assertPercent("0.1%", 1, 2000); // 0.05
+        assertPercent("0.0%", 1, 2001); // just under 0.05
+        assertPercent("33.3%", 1, 3);
+        assertPercent("66.7%", 2, 3);
+        assertPercent("99.9%", 998, 999); // 99.899...
+        assertPercent("100.0%", 19999, 20000); // 99.995
+        assertPercent("100.0%", 7, 7);
+    }
+
+    @Test
+    public void zeroTotalIsZeroPercent() {
+        assertPercent("0.0%", 0, 0);
+        assertPercent("0.0%", 5, 0);
+    }
+
+    @Test
+    public void separatorIsThePassedChar() {
+        int length = FixedPointFormat.formatPercent(1, 8, ',', out);
+        assertEquals("12,5%", new String(out, 0, length));
+    }
+
+    @Test
+    public void randomRatiosMatchBigDecimal() {
+        Random random = new Random(24);
+        for (int i = 0; i < 200000; i++) {
+            int total = 1 + random.nextInt(i % 2 == 0 ? 1000 : Integer.MAX_VALUE);
+            int part = random.nextInt(total + 1);
+            assertPercent(expected(part, total), part, total);
+        }
+    }
+
+    @Test
+    public void extremesFitTheBuffer() {
+        int[] values = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+        for (int part : values) {
+            for (int total : values) {
+                if (total != 0) {
+                    assertPercent(expected(part, total), part, total);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countsMatchIntegerToString() {
+        char[] digits = new char[FixedPointFormat.MAX_COUNT_CHARS];
+        int[] values = {0, 7, -7, 10, 99, 100, 1000000, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : values) {
+            int length = FixedPointFormat.formatCount(value, digits);
+            assertEquals(Integer.toString(value), new String(digits, 0, length));
+        }
+        Random random = new Random(24);
+        for (int i = 0; i < 100000; i++) {
+            int value = random.nextInt();
+            int length = FixedPointFormat.formatCount(value, digits);
+            assertEquals(Integer.toString(value), new String(digits, 0, length));
+        }
+    }
+
+    @Test
+    public void formattingAllocatesNothing() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue("JVM reports thread allocation", threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+        char[] digits = new char[FixedPointFormat.MAX_COUNT_CHARS];
+
+        // Warm up, so the calls measured run compiled, and find what reading
+        // the counter itself costs
+        long sum = formatMany(digits, 200000);
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long before = allocations.getThreadAllocatedBytes(thread);
+            overhead = Math.min(overhead, allocations.getThreadAllocatedBytes(thread) - before);
+        }
+
+        long before = allocations.getThreadAllocatedBytes(thread);
+        sum += formatMany(digits, 100000);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before - overhead;
+        assertEquals("Bytes allocated by 100000 counts and percentages (sum " + sum + ")",
+                0, allocated);
+    }
+
+    private long formatMany(char[] digits, int calls) {
+        long length = 0;
+        for (int i = 0; i < calls; i++) {
+            length += FixedPointFormat.formatCount(i * 7919, digits);
+            length += FixedPointFormat.formatPercent(i % 1000, 1000 + i % 7, '.', out);
+        }
+        return length;
+    }
+
+    private void assertPercent(String expected, int part, int total) {
+        int length = FixedPointFormat.formatPercent(part, total, '.', out);
+        assertEquals(part + " / " + total, expected, new String(out, 0, length));
+    }
+
+    private static String expected(int part, int total) {
+        return BigDecimal.valueOf(part * 100L)
+                .divide(BigDecimal.valueOf(total), 1, RoundingMode.HALF_UP)
+                .toPlainString() + "%";
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks HeatMapCube cells against Calendar, the opening and closing of its
+ * month cubes, and the store's heat map slices against a recount of the
+ * logs, over ranges that cut months and ranges that cover them
+ */
+public class HeatMapCubeTest {
+    private static final int FIRST_DAY = 19700;
+    private static final int DAYS = 400;
+
+    private final Random random = new Random(18);
+    private final Calendar calendar = Calendar.getInstance(EpochDays.zone());
+
+    @Test
+    public void cellsMatchTheCalendar() {
+        for (int i = 0; i < 10000; i++) {
+            long time = EpochDays.noonOf(FIRST_DAY) + (long) random.nextInt(DAYS * 24) * 3600000L
+                    + random.nextInt(3600000);
+            assertEquals("At " + time, expectedCell(time),
+                    HeatMapCube.cellOf(time, EpochDays.of(time)));
+        }
+    }
+
+    @Test
+    public void monthsOpenAndCloseWithTheirLogs() {
+        HeatMapCube cube = new HeatMapCube();
+        long inFirst = EpochDays.noonOf(FIRST_DAY);
+        long inLater = EpochDays.noonOf(FIRST_DAY + 100);
+        int later = EpochDays.monthOf(FIRST_DAY + 100);
+        cube.add(inLater, EpochDays.of(inLater), Emotion.SAD.ordinal(), 1);
+        cube.add(inFirst, EpochDays.of(inFirst), Emotion.HAPPY.ordinal(), 1);
+        cube.add(inFirst, EpochDays.of(inFirst), Emotion.HAPPY.ordinal(), 1);
+        assertEquals(2, cube.monthCount());
+        assertEquals(EpochDays.monthOf(FIRST_DAY), cube.monthAt(0));
+        assertEquals(later, cube.monthAt(1));
+        assertEquals(1, cube.firstMonthFrom(EpochDays.monthOf(FIRST_DAY) + 1));
+        assertEquals(2, cube.firstMonthFrom(later + 1));
+
+        int[] happy = new int[HeatMapCube.CELLS];
+        cube.addMonth(0, Emotion.HAPPY.ordinal(), happy);
+        assertEquals(2, happy[HeatMapCube.cellOf(inFirst, EpochDays.of(inFirst))]);
+
+        // The month closes once its last log is gone; the other keeps its slot
+        cube.add(inFirst, EpochDays.of(inFirst), Emotion.HAPPY.ordinal(), -1);
+        assertEquals(2, cube.monthCount());
+        cube.add(inFirst, EpochDays.of(inFirst), Emotion.HAPPY.ordinal(), -1);
+        assertEquals(1, cube.monthCount());
+        assertEquals(later, cube.monthAt(0));
+
+        int[] all = new int[HeatMapCube.CELLS];
+        cube.addTotal(-1, all);
+        int[] expected = new int[HeatMapCube.CELLS];
+        expected[HeatMapCube.cellOf(inLater, EpochDays.of(inLater))] = 1;
+        assertArrayEquals(expected, all);
+
+        cube.clear();
+        assertEquals(0, cube.monthCount());
+        all = new int[HeatMapCube.CELLS];
+        cube.addTotal(-1, all);
+        assertArrayEquals(new int[HeatMapCube.CELLS], all);
+    }
+
+    @Test
+    public void manyMonthsGrowTheArrays() {
+        HeatMapCube cube = new HeatMapCube();
+        int first = EpochDays.monthOf(FIRST_DAY);
+        for (int month = 0; month < 40; month++) {
+            long time = EpochDays.noonOf(EpochDays.firstDayOfMonth(first + month) + month % 28);
+            cube.add(time, EpochDays.of(time), month % Emotion.values().length, 1);
+        }
+        assertEquals(40, cube.monthCount());
+        for (int slot = 1; slot < cube.monthCount(); slot++) {
+            assertEquals(cube.monthAt(slot - 1) + 1, cube.monthAt(slot));
+        }
+    }
+
+    @Test
+    public void slicesMatchARecount() {
+        EmotionLogStore store = new EmotionLogStore();
+        List<long[]> logs = new ArrayList<>(); // id, time, ordinal
+        Emotion[] emotions = Emotion.values();
+        for (int i = 0; i < 5000; i++) {
+            long time = EpochDays.noonOf(FIRST_DAY) + (long) random.nextInt(DAYS * 24) * 3600000L
+                    + random.nextInt(3600000);
+            int ordinal = random.nextInt(emotions.length);
+            long id = LogIdGenerator.next();
+            store.insert(id, time, emotions[ordinal]);
+            logs.add(new long[] {id, time, ordinal});
+        }
+        checkSlices(store, logs);
+
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(true, store.remove(logs.remove(random.nextInt(logs.size()))[0]));
+        }
+        checkSlices(store, logs);
+    }
+
+    private void checkSlices(EmotionLogStore store, List<long[]> logs) {
+        int[] cells = new int[HeatMapCube.CELLS];
+        for (int i = 0; i < 100; i++) {
+            int from = FIRST_DAY - 10 + random.nextInt(DAYS + 20);
+            int to = from + random.nextInt(i % 2 == 0 ? 20 : 200);
+            Emotion emotion = i % 3 == 0 ? null : Emotion.values()[random.nextInt(8)];
+            store.sliceHeatMap(from, to, emotion, cells);
+            assertArrayEquals(from + ".." + to + " " + emotion,
+                    recount(logs, from, to, emotion), cells);
+        }
+        // Ranges starting and ending on and next to month boundaries
+        int firstMonth = EpochDays.monthOf(FIRST_DAY);
+        for (int month = firstMonth; month <= EpochDays.monthOf(FIRST_DAY + DAYS); month++) {
+            int start = EpochDays.firstDayOfMonth(month);
+            int end = EpochDays.firstDayOfMonth(month + 2) - 1;
+            for (int from = start - 1; from <= start + 1; from++) {
+                for (int to = end - 1; to <= end + 1; to++) {
+                    store.sliceHeatMap(from, to, null, cells);
+                    assertArrayEquals(from + ".." + to, recount(logs, from, to, null), cells);
+                }
+            }
+        }
+        // Whole history, with open ends as the manager passes them
+        store.sliceHeatMap(Integer.MIN_VALUE, Integer.MAX_VALUE, null, cells);
+        assertArrayEquals(recount(logs, Integer.MIN_VALUE, Integer.MAX_VALUE, null), cells);
+        store.sliceHeatMap(FIRST_DAY + 10, FIRST_DAY + 5, null, cells);
+        assertArrayEquals(new int[HeatMapCube.CELLS], cells);
+    }
+
+    private int[] recount(List<long[]> logs, int from, int to, Emotion emotion) {
+        int[] cells = new int[HeatMapCube.CELLS];
+        for (long[] log : logs) {
+            int day = EpochDays.of(log[1]);
+            if (day >= from && day <= to && (emotion == null || emotion.ordinal() == log[2])) {
+                cells[expectedCell(log[1])]++;
+            }
+        }
+        return cells;
+    }
+
+    private int expectedCell(long time) {
+        calendar.setTimeInMillis(time);
+        return (calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY) * HeatMapCube.HOURS
+                + calendar.get(Calendar.HOUR_OF_DAY);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Issues ids from many threads at once and checks that none repeat and
+ * that each thread sees them rise
+ */
+public class LogIdGeneratorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 100000;
+    private static final int BLOCK = 16;
+
+    @Test
+    public void concurrentIdsAreUniqueAndRising() throws InterruptedException {
+        final long[][] issued = new long[THREADS][IDS_PER_THREAD];
+        final boolean[] rising = new boolean[THREADS];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long[] ids = issued[thread];
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    boolean ok = true;
+                    int i = 0;
+                    while (i < ids.length) {
+                        // Mix single ids with reserved blocks
+                        if (thread % 2 == 0 || ids.length - i < BLOCK) {
+                            ids[i++] = LogIdGenerator.next();
+                        } else {
+                            long first = LogIdGenerator.reserve(BLOCK);
+                            for (int b = 0; b < BLOCK; b++) {
+                                ids[i++] = first + b;
+                            }
+                        }
+                        ok &= i < 2 || ids[i - 1] > ids[i - 2];
+                    }
+                    rising[thread] = ok;
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] all = new long[THREADS * IDS_PER_THREAD];
+        for (int t = 0; t < THREADS; t++) {
+            assertTrue("Ids not rising on thread " + t, rising[t]);
+            System.arraycopy(issued[t], 0, all, t * IDS_PER_THREAD, IDS_PER_THREAD);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue("Id issued twice: " + all[i], all[i] != all[i - 1]);
+        }
+    }
+
+    @Test
+    public void observedIdsAreNeverReissued() {
+        long ahead = LogIdGenerator.next() + (1L << 40); // minutes ahead of the clock
+        LogIdGenerator.observe(ahead);
+        LogIdGenerator.observe(ahead - 5); // an older id changes nothing
+        assertEquals(ahead + 1, LogIdGenerator.next());
+        assertEquals(ahead + 2, LogIdGenerator.reserve(3));
+        assertEquals(ahead + 5, LogIdGenerator.next());
+    }
+}
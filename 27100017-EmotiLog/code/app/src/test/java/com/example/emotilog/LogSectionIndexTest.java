@@ -0,0 +1,125 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the day sections of the log list against the days of the logs in
+ * getAllLogs() order: the section of every row, the rows that start a day,
+ * the row of any day, and that an index is shared until the next change
+ * Needs unitTests.returnDefaultValues, since the manager logs through android.util.Log
+ */
+public class LogSectionIndexTest {
+    private static final int FIRST_DAY = 19700;
+    private static final int DAYS = 60;
+
+    private final Random random = new Random(22);
+    private EmotionLogManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        manager = TestManagers.emptyManager();
+    }
+
+    @Test
+    public void emptyHistoryHasNoSections() {
+        LogSectionIndex index = manager.getSectionIndex();
+        assertEquals(0, index.getSectionCount());
+        assertEquals(0, index.getTotalCount());
+        assertEquals(-1, index.getSectionOfRow(0));
+        assertEquals(-1, index.getSectionStartingAt(0));
+        assertEquals(0, index.getRowOfDay(FIRST_DAY));
+    }
+
+    @Test
+    public void sectionsMatchTheRows() {
+        for (int i = 0; i < 500; i++) {
+            addRandomLog();
+        }
+        checkSections();
+
+        // Days lose logs, some all of them
+        List<EmotionLog> logs = manager.getAllLogs();
+        List<Long> ids = new ArrayList<>();
+        for (EmotionLog log : logs) {
+            int day = EpochDays.of(log.getTimestamp().getTime());
+            if (day % 5 == 0 || random.nextInt(3) == 0) {
+                ids.add(log.getId());
+            }
+        }
+        manager.deleteLogs(ids);
+        checkSections();
+    }
+
+    @Test
+    public void indexIsSharedUntilTheNextChange() {
+        addRandomLog();
+        LogSectionIndex index = manager.getSectionIndex();
+        assertSame(index, manager.getSectionIndex());
+
+        EmotionLog log = addRandomLog();
+        LogSectionIndex added = manager.getSectionIndex();
+        assertNotSame(index, added);
+        assertEquals(2, added.getTotalCount());
+
+        manager.deleteLog(log);
+        LogSectionIndex deleted = manager.getSectionIndex();
+        assertNotSame(added, deleted);
+        assertEquals(1, deleted.getTotalCount());
+    }
+
+    private EmotionLog addRandomLog() {
+        int day = FIRST_DAY + random.nextInt(DAYS);
+        EmotionLog log = new EmotionLog(Emotion.values()[random.nextInt(8)],
+                new Date(EpochDays.noonOf(day) - 11 * EpochDays.MILLIS_PER_HOUR
+                        + random.nextInt(22 * 3600000)));
+        manager.addLog(log);
+        return log;
+    }
+
+    private void checkSections() {
+        List<EmotionLog> logs = manager.getAllLogs();
+        LogSectionIndex index = manager.getSectionIndex();
+        assertEquals(logs.size(), index.getTotalCount());
+
+        int sections = 0;
+        int previousDay = Integer.MAX_VALUE;
+        for (int row = 0; row < logs.size(); row++) {
+            int day = EpochDays.of(logs.get(row).getTimestamp().getTime());
+            int section = index.getSectionOfRow(row);
+            assertEquals("Day of row " + row, day, index.getDay(section));
+            if (day != previousDay) {
+                assertEquals("Row " + row + " starts a day", sections, index.getSectionStartingAt(row));
+                assertEquals(row, index.getFirstRow(sections));
+                assertEquals(row, index.getRowOfDay(day));
+                sections++;
+            } else {
+                assertEquals("Row " + row + " continues a day", -1, index.getSectionStartingAt(row));
+            }
+            previousDay = day;
+        }
+        assertEquals(sections, index.getSectionCount());
+
+        // A day without logs maps to the next older day with logs
+        for (int day = FIRST_DAY - 2; day < FIRST_DAY + DAYS + 2; day++) {
+            int expected = logs.size();
+            for (int row = 0; row < logs.size(); row++) {
+                if (EpochDays.of(logs.get(row).getTimestamp().getTime()) <= day) {
+                    expected = row;
+                    break;
+                }
+            }
+            assertEquals("Row of day " + day, expected, index.getRowOfDay(day));
+        }
+    }
+}
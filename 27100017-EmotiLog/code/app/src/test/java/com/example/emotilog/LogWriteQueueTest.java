@@ -0,0 +1,136 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs LogWriteQueue on a Robolectric main looper, whose clock only moves
+ * when the test says so, and checks that taps are written as one batch per
+ * window or per MAX_BATCH taps, with one change event each, and that a tap
+ * after release() is still written
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class LogWriteQueueTest {
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private final AtomicInteger insertEvents = new AtomicInteger();
+    private final EmotionLogManager.OnLogsChangedListener listener =
+            new EmotionLogManager.OnLogsChangedListener() {
+                @Override
+                public void onLogsChanged(EmotionLogChange change) {
+                    if (change.getType() == EmotionLogChange.Type.INSERTED) {
+                        insertEvents.incrementAndGet();
+                    }
+                }
+            };
+    private EmotionLogManager manager;
+    private LogWriteQueue queue;
+
+    @Before
+    public void setUp() {
+        manager = EmotionLogManager.getInstance(RuntimeEnvironment.getApplication());
+        manager.clearAllLogs();
+        manager.addOnLogsChangedListener(listener);
+        queue = new LogWriteQueue(manager);
+    }
+
+    @After
+    public void tearDown() {
+        queue.release();
+        manager.removeOnLogsChangedListener(listener);
+    }
+
+    @Test
+    public void managerSharesOneQueue() {
+        assertSame(manager.getWriteQueue(), manager.getWriteQueue());
+    }
+
+    @Test
+    public void tapsWithinTheWindowAreOneBatch() throws InterruptedException {
+        for (int i = 0; i < 10; i++) {
+            queue.enqueue(Emotion.values()[i % 3]);
+        }
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(LogWriteQueue.WINDOW_MS - 1));
+        Thread.sleep(50);
+        assertEquals("Written before the window ended", 0, manager.getLogCount());
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(1));
+        awaitLogCount(10);
+        awaitInsertEvents(1);
+        assertEquals(4, manager.getStatsForLastDays(1).getCount(Emotion.HAPPY));
+        assertEquals(3, manager.getStatsForLastDays(1).getCount(Emotion.SAD));
+
+        // The next tap opens a new window
+        queue.enqueue(Emotion.CALM);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(LogWriteQueue.WINDOW_MS));
+        awaitLogCount(11);
+        awaitInsertEvents(2);
+    }
+
+    @Test
+    public void fullBatchIsWrittenWithoutWaiting() throws InterruptedException {
+        for (int i = 0; i < LogWriteQueue.MAX_BATCH + 1; i++) {
+            queue.enqueue(Emotion.ANXIOUS);
+        }
+        awaitLogCount(LogWriteQueue.MAX_BATCH);
+        Thread.sleep(50);
+        assertEquals(LogWriteQueue.MAX_BATCH, manager.getLogCount());
+        awaitInsertEvents(1);
+
+        queue.flush();
+        awaitLogCount(LogWriteQueue.MAX_BATCH + 1);
+        awaitInsertEvents(2);
+    }
+
+    @Test
+    public void tapAfterReleaseIsWrittenAtOnce() throws InterruptedException {
+        queue.enqueue(Emotion.TIRED);
+        queue.release();
+        awaitLogCount(1);
+        awaitInsertEvents(1);
+
+        // Written and announced before enqueue returns
+        queue.enqueue(Emotion.GRATEFUL);
+        assertEquals(2, manager.getLogCount());
+        assertEquals(2, insertEvents.get());
+        queue.flush();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(LogWriteQueue.WINDOW_MS));
+        assertEquals(2, manager.getLogCount());
+    }
+
+    private void awaitInsertEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (insertEvents.get() < count) {
+            assertTrue("Only " + insertEvents.get() + " of " + count + " change events",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        assertEquals(count, insertEvents.get());
+    }
+
+    private void awaitLogCount(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (manager.getLogCount() < count) {
+            assertTrue("Only " + manager.getLogCount() + " of " + count + " logs written",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        assertEquals(count, manager.getLogCount());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Runs SummaryLoader on a Robolectric main looper and checks that a day
+ * summary is never computed on the main thread: while the main thread
+ * stays busy in the test, the summary still gets counted and cached, and
+ * only the finished summary is handed to the main thread
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SummaryLoaderTest {
+    private static final int DAY = 19700;
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private final List<DaySummary> delivered = new ArrayList<>();
+    private final List<Thread> deliveredOn = new ArrayList<>();
+    private EmotionLogManager manager;
+    private SummaryLoader loader;
+
+    @Before
+    public void setUp() {
+        manager = EmotionLogManager.getInstance(RuntimeEnvironment.getApplication());
+        manager.clearAllLogs();
+        add(DAY, Emotion.HAPPY);
+        add(DAY, Emotion.HAPPY);
+        add(DAY, Emotion.SAD);
+        add(DAY + 1, Emotion.CALM);
+        loader = new SummaryLoader(manager, new SummaryLoader.Callback() {
+            @Override
+            public void onSummaryLoaded(DaySummary summary) {
+                delivered.add(summary);
+                deliveredOn.add(Thread.currentThread());
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        loader.release();
+    }
+
+    @Test
+    public void summaryIsComputedOffTheMainThread() throws InterruptedException {
+        assertSame(Looper.getMainLooper().getThread(), Thread.currentThread());
+        assertNull(manager.peekDaySummary(DAY));
+
+        loader.load(DAY);
+        assertTrue("Delivered before load returned", delivered.isEmpty());
+
+        // The main thread runs nothing but this loop, so whoever fills the
+        // cache is another thread
+        awaitCached(DAY);
+        assertTrue("Delivered without the main looper running", delivered.isEmpty());
+
+        awaitDelivered(1);
+        assertSame(Looper.getMainLooper().getThread(), deliveredOn.get(0));
+        assertEquals(3, delivered.get(0).getTotalCount());
+        assertEquals(Emotion.HAPPY, delivered.get(0).getItems().get(0).getEmotion());
+    }
+
+    @Test
+    public void cachedSummaryIsDeliveredAtOnce() throws InterruptedException {
+        loader.load(DAY);
+        awaitDelivered(1);
+        DaySummary first = delivered.get(0);
+
+        loader.load(DAY);
+        assertEquals(2, delivered.size());
+        assertSame(first, delivered.get(1));
+    }
+
+    @Test
+    public void latestRequestWins() throws InterruptedException {
+        loader.load(DAY);
+        loader.load(DAY + 1);
+        awaitDelivered(1);
+        assertEquals(DAY + 1, delivered.get(0).getEpochDay());
+        assertEquals(1, delivered.get(0).getTotalCount());
+        assertEquals(Emotion.CALM, delivered.get(0).getItems().get(0).getEmotion());
+    }
+
+    @Test
+    public void nothingIsDeliveredAfterRelease() throws InterruptedException {
+        loader.load(DAY);
+        awaitCached(DAY);
+        loader.release(); // the result may already be posted
+        Thread.sleep(50);
+        shadowOf(Looper.getMainLooper()).idle();
+        loader.load(DAY);
+        assertTrue(delivered.isEmpty());
+    }
+
+    private void add(int day, Emotion emotion) {
+        manager.addLog(new EmotionLog(emotion, new Date(EpochDays.noonOf(day))));
+    }
+
+    private void awaitCached(int day) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (manager.peekDaySummary(day) == null) {
+            assertTrue("Summary of " + day + " never computed", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        assertNotNull(manager.peekDaySummary(day));
+    }
+
+    /**
+     * Run the main looper until count summaries arrive, then once more to
+     * catch any extra delivery
+     */
+    private void awaitDelivered(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (delivered.size() < count) {
+            assertTrue("Summary never delivered", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        Thread.sleep(50);
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(count, delivered.size());
+    }
+}
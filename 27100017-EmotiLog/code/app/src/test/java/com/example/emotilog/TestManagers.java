@@ -0,0 +1,42 @@
+package com.example.emotilog;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Hands the manager tests the EmotionLogManager singleton, created once
+ * over a temporary files directory
+ * Needs unitTests.returnDefaultValues, since the manager logs through android.util.Log
+ */
+final class TestManagers {
+    private static EmotionLogManager manager;
+
+    private TestManagers() {
+    }
+
+    /**
+     * @return The singleton, emptied of any logs earlier tests left behind
+     */
+    static synchronized EmotionLogManager emptyManager() throws IOException {
+        if (manager == null) {
+            final File dir = Files.createTempDirectory("emotilog").toFile();
+            manager = EmotionLogManager.getInstance(new ContextWrapper(null) {
+                @Override
+                public Context getApplicationContext() {
+                    return this;
+                }
+
+                @Override
+                public File getFilesDir() {
+                    return dir;
+                }
+            });
+        }
+        manager.clearAllLogs();
+        return manager;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.emotilog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+/**
+ * Moves the default time zone under a loaded history and checks that day
+ * keys, day counts and hour counts are regrouped in the new zone, and that
+ * formatted dates and times follow it
+ * Needs unitTests.returnDefaultValues, since the manager logs through android.util.Log
+ */
+public class TimeZoneChangeTest {
+    private static final long BASE = 1700000000000L;
+
+    private TimeZone original;
+
+    @Before
+    public void setUp() {
+        original = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        EpochDays.refresh();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(original);
+        EpochDays.refresh();
+    }
+
+    @Test
+    public void refreshReportsOnlyRealChanges() {
+        assertFalse(EpochDays.refresh());
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertTrue(EpochDays.refresh());
+        assertFalse(EpochDays.refresh());
+        assertEquals("Asia/Tokyo", EpochDays.zoneId());
+    }
+
+    @Test
+    public void storeRegroupsDaysInTheNewZone() {
+        EmotionLogStore store = new EmotionLogStore();
+        List<long[]> logs = new ArrayList<>();
+        Random random = new Random(2);
+        for (int i = 0; i < 2000; i++) {
+            long time = BASE + (long) random.nextInt(60 * 24) * EpochDays.MILLIS_PER_HOUR;
+            int ordinal = random.nextInt(Emotion.values().length);
+            store.insert(LogIdGenerator.next(), time, Emotion.values()[ordinal]);
+            logs.add(new long[] {time, ordinal});
+        }
+
+        String[] zones = {"Pacific/Kiritimati", "America/Los_Angeles", "Asia/Kolkata"};
+        for (String zone : zones) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            assertTrue(EpochDays.refresh());
+            store.rebuildDays();
+            assertMatchesRecount(zone, store, logs);
+        }
+    }
+
+    @Test
+    public void managerPublishesARegroupedHistory() throws IOException {
+        EmotionLogManager manager = TestManagers.emptyManager();
+        // 23:30 UTC is already the next morning in Tokyo
+        long lateEvening = EpochDays.noonOf(19700) + 11 * EpochDays.MILLIS_PER_HOUR
+                + 30 * 60000L;
+        manager.addLog(new EmotionLog(Emotion.CALM, new Date(lateEvening)));
+        assertArrayEquals(new int[] {19700}, manager.getLogDays());
+
+        final List<EmotionLogChange> changes = new ArrayList<>();
+        EmotionLogManager.OnLogsChangedListener listener = new EmotionLogManager.OnLogsChangedListener() {
+            @Override
+            public void onLogsChanged(EmotionLogChange change) {
+                changes.add(change);
+            }
+        };
+        manager.addOnLogsChangedListener(listener);
+        try {
+            manager.onZoneChanged(); // nothing changed yet
+            assertEquals(0, changes.size());
+
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            manager.onZoneChanged();
+            assertEquals(1, changes.size());
+            assertEquals(EmotionLogChange.Type.LOADED, changes.get(0).getType());
+            assertArrayEquals(new int[] {19701}, manager.getLogDays());
+            assertEquals(1, manager.getTotalLogsForDate(EmotionLogManager.getDateForDay(19701)));
+            assertEquals(0, manager.getTotalLogsForDate(EmotionLogManager.getDateForDay(19700)));
+        } finally {
+            manager.removeOnLogsChangedListener(listener);
+            manager.clearAllLogs();
+        }
+    }
+
+    @Test
+    public void formattersFollowTheNewZone() {
+        long lateEvening = EpochDays.noonOf(19700) + 11 * EpochDays.MILLIS_PER_HOUR
+                + 30 * 60000L;
+        assertEquals(expected(EmotionLogFormatter.TIME_PATTERN, lateEvening),
+                EmotionLogFormatter.formatTime(lateEvening));
+        assertEquals(expected(EmotionLogFormatter.DATE_PATTERN, lateEvening),
+                EmotionLogFormatter.formatDate(lateEvening));
+        assertEquals(expected(EmotionLogFormatter.LONG_DATE_PATTERN, lateEvening),
+                EmotionLogFormatter.formatLongDate(lateEvening));
+        String utcDay = EmotionLogFormatter.formatDay(19700);
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertTrue(EpochDays.refresh());
+        // Same instant, next morning in Tokyo; no stale formatter or cached day
+        assertEquals(expected(EmotionLogFormatter.TIME_PATTERN, lateEvening),
+                EmotionLogFormatter.formatTime(lateEvening));
+        assertEquals(expected(EmotionLogFormatter.DATE_PATTERN, lateEvening),
+                EmotionLogFormatter.formatDate(lateEvening));
+        assertEquals(expected(EmotionLogFormatter.LONG_DATE_PATTERN, lateEvening),
+                EmotionLogFormatter.formatLongDate(lateEvening));
+        // A day key names the same date in any zone
+        assertEquals(utcDay, EmotionLogFormatter.formatDay(19700));
+    }
+
+    private static String expected(String pattern, long millis) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.getDefault());
+        format.setTimeZone(TimeZone.getDefault());
+        return format.format(new Date(millis));
+    }
+
+    private static void assertMatchesRecount(String zone, EmotionLogStore store, List<long[]> logs) {
+        TreeSet<Integer> days = new TreeSet<>();
+        int[] hours = new int[HeatMapCube.HOURS];
+        for (long[] log : logs) {
+            days.add(EpochDays.of(log[0]));
+            hours[EpochDays.hourOf(log[0])]++;
+        }
+        int[] expectedDays = new int[days.size()];
+        int i = 0;
+        for (int day : days) {
+            expectedDays[i++] = day;
+            int expected = 0;
+            for (long[] log : logs) {
+                if (EpochDays.of(log[0]) == day) {
+                    expected++;
+                }
+            }
+            assertEquals(zone + " day " + day, expected, store.countDay(day));
+        }
+        assertArrayEquals(zone, expectedDays, store.getDays(Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        int[] storeHours = new int[HeatMapCube.HOURS];
+        store.copyHourCounts(null, storeHours);
+        assertArrayEquals(zone, hours, storeHours);
+    }
+}